@@ -0,0 +1,58 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shaman.ds.DPLL;
+import org.shaman.ds.KNF;
+
+/**
+ * Latency of {@link DPLL#doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }
+ * without debug output, searching the first or all fullfilling allocations.
+ * @author Sebastian Weiß
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DPLLBenchmark {
+	@Param({"dpll-example", "resolution-example", "random3sat-50", "random3sat-100", "pigeonhole-6"})
+	public String formular;
+
+	private KNF knf;
+	private DPLL dpll;
+
+	@Setup
+	public void setup() {
+		knf = new KNF(Formulars.create(formular));
+		dpll = new DPLL();
+	}
+
+	@Benchmark
+	public Set<Set<KNF.Literal>> firstModel() {
+		return dpll.doDPLL(knf, null, false);
+	}
+
+	@Benchmark
+	public Set<Set<KNF.Literal>> allModels() {
+		return dpll.doDPLL(knf, null, true);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds.benchmarks;
+
+import java.util.Random;
+
+/**
+ * The formulars used by the benchmarks, as text in the syntax of
+ * {@link org.shaman.ds.KNF#KNF(java.lang.String) }. The names are:
+ * <ul>
+ * <li>{@code dpll-example}: the formular of {@link org.shaman.ds.DPLL#main(java.lang.String[]) }</li>
+ * <li>{@code resolution-example}: the formular of {@link org.shaman.ds.Resolution#main(java.lang.String[]) }</li>
+ * <li>{@code random3sat-n}: random 3-SAT with n variables at the phase
+ * transition (4.26 clauses per variable), always with the same seed</li>
+ * <li>{@code pigeonhole-n}: n+1 pigeons in n holes, unfullfillable</li>
+ * </ul>
+ * @author Sebastian Weiß
+ */
+public class Formulars {
+	public static final String DPLL_EXAMPLE = "{{-p,q,-r,s},{-q,-r,s},{r},{-p,s},{-p,r}}";
+	public static final String RESOLUTION_EXAMPLE = "{ "
+			+ "{g,h,n,d,r,m,p}, "
+			+ "{-h,-g}, "
+			+ "{-g,r,d}, "
+			+ "{n,g,m,d}, "
+			+ "{p,-d}, "
+			+ "{-g,p,h},"
+			+ "{-g,-p,-h},"
+			+ "{-r,h,g},"
+			+ "{-r,-h,-g},"
+			+ "{-m,r},"
+			+ "{-p,n},"
+			+ "{-n,-r},"
+			+ "{-n,g},"
+			+ "{-d} }";
+	private static final double PHASE_TRANSITION = 4.26;
+	private static final long SEED = 42;
+
+	private Formulars() {
+	}
+
+	/**
+	 * @param name the name of the formular, see above
+	 * @return the formular as text
+	 */
+	public static String create(String name) {
+		switch (name) {
+			case "dpll-example": return DPLL_EXAMPLE;
+			case "resolution-example": return RESOLUTION_EXAMPLE;
+		}
+		int dash = name.lastIndexOf('-');
+		if (dash > 0) {
+			int n = Integer.parseInt(name.substring(dash + 1));
+			switch (name.substring(0, dash)) {
+				case "random3sat": return random3Sat(n, PHASE_TRANSITION, SEED);
+				case "pigeonhole": return pigeonhole(n);
+			}
+		}
+		throw new IllegalArgumentException("Unbekannte Formel: "+name);
+	}
+
+	/**
+	 * Random 3-SAT: every clause contains three different variables, each
+	 * negated with a probability of 1/2.
+	 * @param variables the count of variables
+	 * @param ratio the count of clauses per variable
+	 * @param seed the seed of the random numbers
+	 * @return the formular as text
+	 */
+	public static String random3Sat(int variables, double ratio, long seed) {
+		Random random = new Random(seed);
+		int clauses = (int) Math.round(variables * ratio);
+		StringBuilder str = new StringBuilder("{");
+		int[] clause = new int[3];
+		for (int c=0; c<clauses; c++) {
+			for (int i=0; i<3; i++) {
+				boolean known;
+				do {
+					clause[i] = random.nextInt(variables) + 1;
+					known = false;
+					for (int j=0; j<i; j++) {
+						known |= clause[j] == clause[i];
+					}
+				} while (known);
+			}
+			str.append(c == 0 ? "{" : ", {");
+			for (int i=0; i<3; i++) {
+				if (i > 0) {
+					str.append(',');
+				}
+				if (random.nextBoolean()) {
+					str.append('-');
+				}
+				str.append('x').append(clause[i]);
+			}
+			str.append('}');
+		}
+		return str.append('}').toString();
+	}
+
+	/**
+	 * The pigeonhole principle: each of the n+1 pigeons sits in one of the
+	 * n holes, no hole contains two pigeons. Variable {@code p3_1} means
+	 * pigeon 3 sits in hole 1.
+	 * @param holes the count of holes
+	 * @return the formular as text
+	 */
+	public static String pigeonhole(int holes) {
+		StringBuilder str = new StringBuilder("{");
+		for (int p=1; p<=holes+1; p++) {
+			str.append(p == 1 ? "{" : ", {");
+			for (int h=1; h<=holes; h++) {
+				if (h > 1) {
+					str.append(',');
+				}
+				str.append('p').append(p).append('_').append(h);
+			}
+			str.append('}');
+		}
+		for (int h=1; h<=holes; h++) {
+			for (int p=1; p<=holes+1; p++) {
+				for (int q=p+1; q<=holes+1; q++) {
+					str.append(", {-p").append(p).append('_').append(h)
+							.append(",-p").append(q).append('_').append(h).append('}');
+				}
+			}
+		}
+		return str.append('}').toString();
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shaman.ds.FormularParser;
+import org.shaman.ds.KNF;
+
+/**
+ * Throughput of the formular parser, in formulars per second.
+ * @author Sebastian Weiß
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({"dpll-example", "random3sat-1000", "random3sat-100000", "pigeonhole-20"})
+	public String formular;
+
+	private String text;
+
+	@Setup
+	public void setup() {
+		text = Formulars.create(formular);
+	}
+
+	@Benchmark
+	public KNF parseString() {
+		return new KNF(text);
+	}
+
+	@Benchmark
+	public KNF parseReader() throws IOException {
+		return FormularParser.parse(new StringReader(text));
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shaman.ds.KNF;
+import org.shaman.ds.Resolution;
+
+/**
+ * Latency of {@link Resolution#doResolution(org.shaman.ds.KNF, org.shaman.ds.Output) }
+ * without debug output. Resolution grows fast, so the formulars are small.
+ * @author Sebastian Weiß
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolutionBenchmark {
+	@Param({"dpll-example", "resolution-example", "random3sat-15", "random3sat-25", "pigeonhole-3"})
+	public String formular;
+
+	private KNF knf;
+
+	@Setup
+	public void setup() {
+		knf = new KNF(Formulars.create(formular));
+	}
+
+	@Benchmark
+	public boolean resolution() {
+		return Resolution.doResolution(knf, null);
+	}
+}
@@ -0,0 +1,462 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves many formular files without the GUI, e.g. for regression runs:
+ * <pre>
+ * java -cp FormelSolver.jar org.shaman.ds.BatchRunner -threads 8 -timeout 30 -format json instances/
+ * </pre>
+ * Directories are searched recursively. Files ending with {@code .cnf} or
+ * {@code .dimacs} are read as DIMACS (from 64 MB on in parallel with
+ * {@link Dimacs#readMapped(java.io.File) }), {@code .knfb} as {@link BinaryKNF}, all
+ * others in the syntax of {@link KNF#KNF(java.lang.String) }. <br>
+ * The files are solved by a fixed count of threads, every file has its own
+ * {@link CancellationToken} with the timeout for reading and solving and
+ * ends as UNKNOWN when it is reached. The readers are not interrupted, a file
+ * whose reading takes longer is not solved. One line per file is written as soon as it is finished, as CSV
+ * with a header line or as one JSON object per line. A file that can not be
+ * read gets the status ERROR and the message.
+ * @author Sebastian Weiß
+ */
+public class BatchRunner {
+	public static final String CDCL = "cdcl";
+	public static final String RESOLUTION = "resolution";
+	public static final String CSV = "csv";
+	public static final String JSON = "json";
+	public static final String ERROR = "ERROR";
+
+	private static final String[] COLUMNS = {"file", "status", "variables", "clauses",
+		"parseMs", "solveMs", "decisions", "conflicts", "propagations", "resolvents", "error"};
+	//DIMACS files of at least this size are read with Dimacs.readMapped
+	private static final long MAPPED_SIZE = 64L << 20;
+
+	private final int threads;
+	private final long timeout;
+	private final String algorithm;
+	private final String format;
+	private int satisfiable;
+	private int unsatisfiable;
+	private int unknown;
+	private int errors;
+	private SolutionCache cache;
+
+	/**
+	 * @param threads the count of formulars solved at the same time
+	 * @param timeout the maximal time to read and solve each file in
+	 * milliseconds, 0 for no limit
+	 * @param algorithm {@link #CDCL} or {@link #RESOLUTION}
+	 * @param format {@link #CSV} or {@link #JSON}
+	 */
+	public BatchRunner(int threads, long timeout, String algorithm, String format) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Ungültige Anzahl an Threads: "+threads);
+		}
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Negative Zeitbegrenzung: "+timeout);
+		}
+		if (!CDCL.equals(algorithm) && !RESOLUTION.equals(algorithm)) {
+			throw new IllegalArgumentException("Unbekannter Algorithmus: "+algorithm);
+		}
+		if (!CSV.equals(format) && !JSON.equals(format)) {
+			throw new IllegalArgumentException("Unbekanntes Format: "+format);
+		}
+		this.threads = threads;
+		this.timeout = timeout;
+		this.algorithm = algorithm;
+		this.format = format;
+	}
+
+	/**
+	 * Sets a cache that is shared by all threads, formulars that were solved
+	 * before are answered from it.
+	 * @param cache the cache or {@code null}
+	 */
+	public void setCache(SolutionCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the cache or {@code null}
+	 */
+	public SolutionCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Collects the formular files, directories are searched recursively.
+	 * @param paths files and directories
+	 * @return the files, sorted by name within each directory
+	 * @throws IllegalArgumentException if a path does not exist
+	 */
+	public static List<File> collect(List<File> paths) {
+		List<File> files = new ArrayList<>();
+		for (File path : paths) {
+			if (!path.exists()) {
+				throw new IllegalArgumentException("Datei nicht gefunden: "+path);
+			}
+			collect(path, files);
+		}
+		return files;
+	}
+
+	private static void collect(File path, List<File> files) {
+		if (!path.isDirectory()) {
+			files.add(path);
+			return;
+		}
+		File[] children = path.listFiles();
+		if (children == null) {
+			return; //not readable
+		}
+		Arrays.sort(children);
+		for (File child : children) {
+			if (!child.isHidden()) {
+				collect(child, files);
+			}
+		}
+	}
+
+	/**
+	 * Solves all files and writes one line per file in the order they finish.
+	 * @param files the formular files
+	 * @param out receives the lines, it is flushed after every line and not
+	 * closed
+	 * @throws IOException if the output can not be written
+	 * @throws InterruptedException if the calling thread is interrupted, the
+	 * remaining files are not solved
+	 */
+	public void run(List<File> files, Writer out) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "BatchRunner-"+(++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			CompletionService<String[]> results = new ExecutorCompletionService<>(executor);
+			for (final File file : files) {
+				results.submit(new Callable<String[]>() {
+					@Override
+					public String[] call() {
+						return solve(file);
+					}
+				});
+			}
+			if (CSV.equals(format)) {
+				writeCsv(COLUMNS, out);
+			}
+			for (int i=0; i<files.size(); i++) {
+				String[] row;
+				try {
+					row = results.take().get();
+				} catch (ExecutionException ex) {
+					throw new IllegalStateException(ex.getCause()); //solve catches everything
+				}
+				count(row[1]);
+				if (CSV.equals(format)) {
+					writeCsv(row, out);
+				} else {
+					writeJson(row, out);
+				}
+				out.flush();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reads and solves one file.
+	 * @return the values of the columns
+	 */
+	private String[] solve(File file) {
+		String[] row = new String[COLUMNS.length];
+		row[0] = file.getPath();
+		//the timeout covers reading and solving
+		CancellationToken cancellation = timeout > 0
+				? CancellationToken.timeout(timeout, TimeUnit.MILLISECONDS) : CancellationToken.create();
+		long start = System.nanoTime();
+		KNF knf;
+		try {
+			knf = read(file);
+		} catch (IOException | RuntimeException ex) {
+			row[1] = ERROR;
+			row[4] = millis(System.nanoTime() - start);
+			row[10] = String.valueOf(ex.getMessage());
+			return row;
+		} catch (StackOverflowError | OutOfMemoryError ex) {
+			row[1] = ERROR;
+			row[4] = millis(System.nanoTime() - start);
+			row[10] = ex.toString();
+			return row;
+		}
+		row[2] = String.valueOf(knf.getVariables().size());
+		row[3] = String.valueOf(knf.getCount());
+		row[4] = millis(System.nanoTime() - start);
+		if (cancellation.isCancelled()) {
+			row[1] = SolverResult.Status.UNKNOWN.toString(); //no time left to solve
+			return row;
+		}
+		start = System.nanoTime();
+		SolverResult result;
+		try {
+			if (RESOLUTION.equals(algorithm)) {
+				result = Resolution.solve(knf, null, cancellation, cache);
+			} else {
+				result = DPLL.solve(knf, cancellation, cache);
+			}
+		} catch (RuntimeException | StackOverflowError | OutOfMemoryError ex) {
+			row[1] = ERROR;
+			row[5] = millis(System.nanoTime() - start);
+			row[10] = ex.toString();
+			return row;
+		}
+		row[5] = millis(System.nanoTime() - start);
+		SolverStatistics statistics = result.getStatistics();
+		row[1] = result.getStatus().toString();
+		row[6] = String.valueOf(statistics.getDecisions());
+		row[7] = String.valueOf(statistics.getConflicts());
+		row[8] = String.valueOf(statistics.getPropagations());
+		row[9] = String.valueOf(statistics.getResolvents());
+		return row;
+	}
+
+	/**
+	 * Reads a formular, the format is chosen by the file extension. Large
+	 * DIMACS files are read in parallel.
+	 */
+	static KNF read(File file) throws IOException {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".cnf") || name.endsWith(".dimacs")) {
+			if (file.length() >= MAPPED_SIZE) {
+				return Dimacs.readMapped(file);
+			}
+			return Dimacs.read(file);
+		} else if (name.endsWith(".knfb")) {
+			return BinaryKNF.read(file);
+		} else {
+			try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+				return FormularParser.parse(in);
+			}
+		}
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	private synchronized void count(String status) {
+		switch (status) {
+			case "SATISFIABLE": satisfiable++; break;
+			case "UNSATISFIABLE": unsatisfiable++; break;
+			case "UNKNOWN": unknown++; break;
+			default: errors++; break;
+		}
+	}
+
+	private static void writeCsv(String[] row, Writer out) throws IOException {
+		for (int i=0; i<row.length; i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			String value = row[i] == null ? "" : row[i];
+			if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+					|| value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+				value = '"' + value.replace("\"", "\"\"") + '"';
+			}
+			out.write(value);
+		}
+		out.write('\n');
+	}
+
+	private static void writeJson(String[] row, Writer out) throws IOException {
+		out.write('{');
+		boolean first = true;
+		for (int i=0; i<row.length; i++) {
+			if (row[i] == null) {
+				continue;
+			}
+			if (!first) {
+				out.write(',');
+			}
+			first = false;
+			out.write('"');
+			out.write(COLUMNS[i]);
+			out.write("\":");
+			//the status, file and error are strings, the other columns numbers
+			if (i <= 1 || i == 10) {
+				writeJsonString(row[i], out);
+			} else {
+				out.write(row[i]);
+			}
+		}
+		out.write("}\n");
+	}
+
+	private static void writeJsonString(String value, Writer out) throws IOException {
+		out.write('"');
+		for (int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"': out.write("\\\""); break;
+				case '\\': out.write("\\\\"); break;
+				case '\n': out.write("\\n"); break;
+				case '\r': out.write("\\r"); break;
+				case '\t': out.write("\\t"); break;
+				default:
+					if (c < 0x20) {
+						out.write(String.format("\\u%04x", (int) c));
+					} else {
+						out.write(c);
+					}
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * @return the count of fullfillable formulars of the last runs
+	 */
+	public synchronized int getSatisfiableCount() {
+		return satisfiable;
+	}
+
+	/**
+	 * @return the count of unfullfillable formulars of the last runs
+	 */
+	public synchronized int getUnsatisfiableCount() {
+		return unsatisfiable;
+	}
+
+	/**
+	 * @return the count of formulars that reached the timeout
+	 */
+	public synchronized int getUnknownCount() {
+		return unknown;
+	}
+
+	/**
+	 * @return the count of files that could not be read or solved
+	 */
+	public synchronized int getErrorCount() {
+		return errors;
+	}
+
+	private static void usage() {
+		System.err.println("Aufruf: java org.shaman.ds.BatchRunner [Optionen] Datei|Verzeichnis ...");
+		System.err.println("  -threads n      Anzahl der Threads (Standard: Anzahl der Prozessoren)");
+		System.err.println("  -timeout s      Zeitbegrenzung pro Formel in Sekunden, 0 für keine (Standard: 60)");
+		System.err.println("  -algorithm a    cdcl oder resolution (Standard: cdcl)");
+		System.err.println("  -format f       csv oder json (Standard: csv)");
+		System.err.println("  -output datei   Ausgabedatei (Standard: Standardausgabe)");
+		System.err.println("  -cache datei    Gespeicherte Lösungen, wird gelesen und danach aktualisiert");
+		System.err.println("Dateien mit .cnf oder .dimacs werden als DIMACS gelesen, mit .knfb binär, alle anderen als KNF.");
+	}
+
+	/**
+	 * @param args the command line arguments, see the usage
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		double timeout = 60;
+		String algorithm = CDCL;
+		String format = CSV;
+		File output = null;
+		File cacheFile = null;
+		List<File> paths = new ArrayList<>();
+		BatchRunner runner;
+		List<File> files;
+		try {
+			for (int i=0; i<args.length; i++) {
+				String arg = args[i];
+				if (!arg.startsWith("-")) {
+					paths.add(new File(arg));
+					continue;
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Wert fehlt für "+arg);
+				}
+				String value = args[++i];
+				switch (arg) {
+					case "-threads": threads = Integer.parseInt(value); break;
+					case "-timeout": timeout = Double.parseDouble(value); break;
+					case "-algorithm": algorithm = value.toLowerCase(Locale.ROOT); break;
+					case "-format": format = value.toLowerCase(Locale.ROOT); break;
+					case "-output": output = new File(value); break;
+					case "-cache": cacheFile = new File(value); break;
+					default: throw new IllegalArgumentException("Unbekannte Option: "+arg);
+				}
+			}
+			if (paths.isEmpty()) {
+				throw new IllegalArgumentException("Keine Dateien angegeben");
+			}
+			runner = new BatchRunner(threads, Math.round(timeout * 1000), algorithm, format);
+			files = collect(paths);
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			usage();
+			System.exit(2);
+			return;
+		}
+
+		if (cacheFile != null) {
+			SolutionCache cache = new SolutionCache();
+			if (cacheFile.exists()) {
+				cache.load(cacheFile);
+			}
+			runner.setCache(cache);
+		}
+		long start = System.nanoTime();
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				output == null ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8));
+		try {
+			runner.run(files, out);
+		} finally {
+			if (output == null) {
+				out.flush();
+			} else {
+				out.close();
+			}
+		}
+		System.err.println(files.size()+" Formeln in "+(System.nanoTime() - start)/1000000+" ms: "
+				+runner.getSatisfiableCount()+" erfüllbar, "+runner.getUnsatisfiableCount()+" unerfüllbar, "
+				+runner.getUnknownCount()+" Zeitbegrenzung erreicht, "+runner.getErrorCount()+" Fehler");
+		if (cacheFile != null) {
+			SolutionCache cache = runner.getCache();
+			System.err.println("Cache: "+cache.getHits()+" Treffer, "+cache.getMisses()+" Fehlschläge");
+			cache.save(cacheFile);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An output that does not write the text immediately. {@link #print(java.lang.Object) }
+ * and {@link #println(java.lang.Object) } only add the text to a lock-free
+ * queue, so the solver threads never wait. A consumer takes the text out in
+ * large chunks with {@link #drain(int) } and writes it at once.
+ * @author Sebastian Weiß
+ */
+public abstract class BatchedOutput extends Output {
+	private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed;
+
+	@Override
+	public void print(Object obj) {
+		queue.offer(String.valueOf(obj));
+	}
+
+	@Override
+	public void println(Object obj) {
+		queue.offer(obj + "\n");
+	}
+
+	/**
+	 * Marks the output as closed, the consumer writes the remaining text.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * @return {@code true} if {@link #close() } was called
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return {@code true} if no text is waiting
+	 */
+	protected boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	/**
+	 * Takes the waiting text out of the queue and joins it.
+	 * @param budget the count of chars after which it stops, even if there
+	 * is more text
+	 * @return the text, in the order it was printed
+	 */
+	protected StringBuilder drain(int budget) {
+		StringBuilder str = new StringBuilder();
+		String s;
+		while (str.length() < budget && (s = queue.poll()) != null) {
+			str.append(s);
+		}
+		return str;
+	}
+}
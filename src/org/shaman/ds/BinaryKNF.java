@@ -0,0 +1,270 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary file format for formulars that is faster to load than
+ * DIMACS. The file contains:
+ * <ol>
+ * <li>the magic bytes {@code KNFB} and the version</li>
+ * <li>the count of variables, clauses and literals as ints</li>
+ * <li>the name of each variable: its length in bytes as varint and UTF-8</li>
+ * <li>the length of each clause as varint</li>
+ * <li>all literals one after another, zigzag encoded as varint</li>
+ * <li>the CRC32 checksum of all bytes before it</li>
+ * </ol>
+ * A varint stores 7 bits per byte, the highest bit is set if another byte
+ * follows. Zigzag maps 0, -1, 1, -2, ... to 0, 1, 2, 3, ..., so small negative
+ * literals stay small. The ints are stored big endian. <br>
+ * The reader maps the file into memory and decodes the literals into one
+ * flat array that is used by the {@link ClauseDatabase} without copying.
+ * A file with a literal twice in a clause or with a clause twice is
+ * rejected, the database keeps clauses and their literals as sets.
+ * @author Sebastian Weiß
+ */
+public class BinaryKNF {
+	private static final int MAGIC = ('K' << 24) | ('N' << 16) | ('F' << 8) | 'B';
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 20;
+	//files larger than this are mapped in several windows
+	private static final long WINDOW = 1L << 30;
+
+	private final FileChannel channel;
+	private final long size;
+	private ByteBuffer window;
+	private long windowStart;
+
+	private BinaryKNF(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.size = channel.size();
+	}
+
+	/**
+	 * Writes the formular into a file.
+	 * @param knf the formular
+	 * @param file the file
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(KNF knf, File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(knf, out);
+		}
+	}
+
+	/**
+	 * Writes the formular, the stream is not closed.
+	 * @param knf the formular
+	 * @param out the output
+	 * @throws IOException if the stream can not be written
+	 */
+	public static void write(KNF knf, OutputStream out) throws IOException {
+		VariableTable variables = knf.getVariables();
+		ClauseDatabase db = knf.getDatabase();
+		Writer o = new Writer(new BufferedOutputStream(out, 1 << 16));
+		o.writeInt(MAGIC);
+		o.writeInt(VERSION);
+		o.writeInt(variables.size());
+		o.writeInt(db.size());
+		o.writeInt(db.getLiteralCount());
+		for (int v=1; v<=variables.size(); v++) {
+			byte[] name = variables.getName(v).getBytes(StandardCharsets.UTF_8);
+			o.writeVarint(name.length);
+			o.write(name);
+		}
+		for (int c=0; c<db.size(); c++) {
+			o.writeVarint(db.length(c));
+		}
+		int[] arena = db.getArena();
+		for (int c=0; c<db.size(); c++) {
+			for (int i=db.start(c); i<db.start(c)+db.length(c); i++) {
+				o.writeVarint((arena[i] << 1) ^ (arena[i] >> 31));
+			}
+		}
+		o.writeInt((int) o.crc.getValue());
+		o.out.flush();
+	}
+
+	/**
+	 * Reads a formular from a memory mapped file.
+	 * @param file the file
+	 * @return the formular
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if the file is no binary formular or
+	 * the checksum is wrong
+	 */
+	public static KNF read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new BinaryKNF(channel).read();
+		}
+	}
+
+	private KNF read() throws IOException {
+		if (size < HEADER_SIZE + 4) {
+			throw new IllegalArgumentException("Keine KNF-Binärdatei");
+		}
+		checkCrc();
+		map(0);
+		if (window.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Keine KNF-Binärdatei");
+		}
+		if (window.getInt() != VERSION) {
+			throw new IllegalArgumentException("Unbekannte Version der KNF-Binärdatei");
+		}
+		int variableCount = window.getInt();
+		int clauseCount = window.getInt();
+		int literalCount = window.getInt();
+		if (variableCount < 0 || clauseCount < 0 || literalCount < 0) {
+			throw new IllegalArgumentException("Ungültige KNF-Binärdatei");
+		}
+		VariableTable variables = new VariableTable();
+		byte[] name = new byte[64];
+		for (int v=1; v<=variableCount; v++) {
+			int length = readVarint();
+			if (length > name.length) {
+				name = new byte[Math.max(length, name.length * 2)];
+			}
+			for (int i=0; i<length; i++) {
+				name[i] = get();
+			}
+			if (variables.intern(new String(name, 0, length, StandardCharsets.UTF_8)) != v) {
+				throw new IllegalArgumentException("Doppelter Variablenname in der KNF-Binärdatei");
+			}
+		}
+		int[] lengths = new int[clauseCount];
+		long total = 0;
+		for (int c=0; c<clauseCount; c++) {
+			lengths[c] = readVarint();
+			total += lengths[c];
+		}
+		if (total != literalCount) {
+			throw new IllegalArgumentException("Ungültige KNF-Binärdatei");
+		}
+		int[] arena = new int[literalCount];
+		//the clause that marked each literal last, indexed by ClauseDatabase.index
+		int[] marks = new int[2 * variableCount + 2];
+		for (int c=0, i=0; c<clauseCount; c++) {
+			for (int end=i+lengths[c]; i<end; i++) {
+				int z = readVarint();
+				int l = (z >>> 1) ^ -(z & 1);
+				if (l == 0 || Math.abs(l) > variableCount) {
+					throw new IllegalArgumentException("Ungültiges Literal in der KNF-Binärdatei: "+l);
+				}
+				int index = ClauseDatabase.index(l);
+				if (marks[index] == c + 1) {
+					throw new IllegalArgumentException("Doppeltes Literal in Klausel "+(c + 1)+" der KNF-Binärdatei");
+				}
+				marks[index] = c + 1;
+				arena[i] = l;
+			}
+		}
+		ClauseDatabase db = new ClauseDatabase(arena, lengths, clauseCount);
+		int duplicate = db.findDuplicate();
+		if (duplicate >= 0) {
+			throw new IllegalArgumentException("Doppelte Klausel "+(duplicate + 1)+" in der KNF-Binärdatei");
+		}
+		return new KNF(variables, db);
+	}
+
+	/**
+	 * Compares the checksum at the end with the checksum of the content.
+	 */
+	private void checkCrc() throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[1 << 16];
+		long end = size - 4;
+		for (long p=0; p<end; p+=WINDOW) {
+			map(p);
+			int length = (int) Math.min(window.remaining(), end - p);
+			for (int done=0; done<length; done+=chunk.length) {
+				int n = Math.min(chunk.length, length - done);
+				window.get(chunk, 0, n);
+				crc.update(chunk, 0, n);
+			}
+		}
+		map(end);
+		if (window.getInt() != (int) crc.getValue()) {
+			throw new IllegalArgumentException("Prüfsumme der KNF-Binärdatei stimmt nicht");
+		}
+	}
+
+	private void map(long position) throws IOException {
+		windowStart = position;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+		window.order(ByteOrder.BIG_ENDIAN);
+	}
+
+	private byte get() throws IOException {
+		if (!window.hasRemaining()) {
+			if (windowStart + window.capacity() >= size - 4) {
+				throw new IllegalArgumentException("Unerwartetes Ende der KNF-Binärdatei");
+			}
+			map(windowStart + window.capacity());
+		}
+		return window.get();
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift=0; shift<35; shift+=7) {
+			byte b = get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Ungültige Zahl in der KNF-Binärdatei");
+	}
+
+	/**
+	 * Writes ints and varints and updates the checksum.
+	 */
+	private static class Writer {
+		private final OutputStream out;
+		private final CRC32 crc = new CRC32();
+		private final byte[] buffer = new byte[8];
+
+		private Writer(OutputStream out) {
+			this.out = out;
+		}
+
+		private void write(byte[] bytes) throws IOException {
+			out.write(bytes);
+			crc.update(bytes, 0, bytes.length);
+		}
+
+		private void writeInt(int value) throws IOException {
+			for (int i=0; i<4; i++) {
+				buffer[i] = (byte) (value >>> (24 - 8 * i));
+			}
+			out.write(buffer, 0, 4);
+			crc.update(buffer, 0, 4);
+		}
+
+		private void writeVarint(int value) throws IOException {
+			int n = 0;
+			while ((value & ~0x7f) != 0) {
+				buffer[n++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			buffer[n++] = (byte) value;
+			out.write(buffer, 0, n);
+			crc.update(buffer, 0, n);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops a solver call from another thread or after a deadline. <br>
+ * The solvers check the token in their search loops; when it is cancelled
+ * they return at the next decision or conflict and leave their data in a
+ * consistent state, unlike {@link Thread#stop() }. A token can be shared by
+ * several solvers, e.g. all calls of one request. Once cancelled it stays
+ * cancelled.
+ * @author Sebastian Weiß
+ */
+public class CancellationToken {
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	private CancellationToken(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @return a token that is only cancelled by {@link #cancel() }
+	 */
+	public static CancellationToken create() {
+		return new CancellationToken(NO_DEADLINE);
+	}
+
+	/**
+	 * @param timeout the time from now on until the token is cancelled
+	 * @param unit the unit of the time
+	 * @return a token that is cancelled after the timeout or by {@link #cancel() }
+	 */
+	public static CancellationToken timeout(long timeout, TimeUnit unit) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Negative Zeitbegrenzung: "+timeout);
+		}
+		long now = System.nanoTime();
+		long nanos = unit.toNanos(timeout);
+		//overflow is treated as no deadline
+		return new CancellationToken(nanos >= NO_DEADLINE - now ? NO_DEADLINE : now + nanos);
+	}
+
+	/**
+	 * Cancels the token, it can be called from any thread.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return {@code true} if {@link #cancel() } was called or the deadline
+	 * has passed
+	 */
+	public boolean isCancelled() {
+		if (cancelled) {
+			return true;
+		}
+		if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) {
+			cancelled = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the time until the deadline in nanoseconds, 0 if it has passed
+	 * or the token is cancelled, {@link Long#MAX_VALUE} without a deadline
+	 */
+	public long getRemainingNanos() {
+		if (cancelled) {
+			return 0;
+		}
+		if (deadline == NO_DEADLINE) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, deadline - System.nanoTime());
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage of clauses.
+ * A literal is a signed int: the variable index (starting at 1), negative if
+ * the literal is negated (DIMACS style). All clauses are stored one after
+ * another in one flat int array, the start and the length of every clause are
+ * kept in two offset tables. <br>
+ * Like a set, a clause contains each literal only once and the database
+ * contains each clause only once. The order of the literals and clauses is kept.
+ * @author Sebastian Weiß
+ */
+public class ClauseDatabase {
+	private int[] arena;
+	private int arenaSize;
+	private int[] starts;
+	private int[] lengths;
+	private int[] hashes;
+	private int count;
+
+	//open addressing hash table with hash << 32 | clause index + 1, 0 is empty,
+	//the hash avoids loading the clause for most collisions. It is null until
+	//it is needed for wrapped clauses.
+	private long[] table;
+	//marks for the literals, indexed by index(literal)
+	private int[] marks;
+	private int stamp;
+	private int maxVariable;
+
+	/**
+	 * Constructs an empty database
+	 */
+	public ClauseDatabase() {
+		arena = new int[64];
+		starts = new int[16];
+		lengths = new int[16];
+		hashes = new int[16];
+		table = new long[32];
+		marks = new int[16];
+	}
+
+	/**
+	 * Wraps clauses without duplicates, used by the readers. The arrays are
+	 * not copied and the hash table is built when it is needed first.
+	 * @param arena the literals of all clauses one after another
+	 * @param lengths the length of each clause
+	 * @param count the count of clauses
+	 */
+	ClauseDatabase(int[] arena, int[] lengths, int count) {
+		int capacity = Math.max(16, count);
+		this.arena = arena;
+		this.lengths = lengths.length >= capacity ? lengths : Arrays.copyOf(lengths, capacity);
+		this.starts = new int[this.lengths.length];
+		this.hashes = new int[this.lengths.length];
+		this.count = count;
+		int p = 0;
+		for (int c=0; c<count; c++) {
+			starts[c] = p;
+			int hash = 0;
+			for (int i=p; i<p+lengths[c]; i++) {
+				hash += mix(arena[i]);
+				maxVariable = Math.max(maxVariable, variable(arena[i]));
+			}
+			hashes[c] = hash;
+			p += lengths[c];
+		}
+		this.arenaSize = p;
+		this.marks = new int[2 * maxVariable + 2];
+	}
+
+	/**
+	 * Builds the hash table of wrapped clauses and searches a clause that is
+	 * contained twice. The literals of each clause must be different.
+	 * @return the index of the first clause that is equal to an earlier one
+	 * or -1
+	 */
+	int findDuplicate() {
+		if (table != null) {
+			return -1; //add() does not allow duplicates
+		}
+		table = new long[Integer.highestOneBit(Math.max(16, count) * 4)];
+		for (int c=0; c<count; c++) {
+			nextStamp();
+			for (int i=starts[c]; i<starts[c]+lengths[c]; i++) {
+				marks[index(arena[i])] = stamp;
+			}
+			if (find(lengths[c], hashes[c]) >= 0) {
+				table = null;
+				return c;
+			}
+			insert(c);
+		}
+		return -1;
+	}
+
+	/**
+	 * Converts the literal into a non-negative array index.
+	 * The two literals of variable {@code v} map to {@code 2v} and {@code 2v+1}.
+	 * @param literal the signed literal
+	 * @return the index
+	 */
+	public static int index(int literal) {
+		return literal > 0 ? (literal << 1) : ((-literal << 1) | 1);
+	}
+
+	/**
+	 * @param literal the signed literal
+	 * @return the variable index of the literal
+	 */
+	public static int variable(int literal) {
+		return literal > 0 ? literal : -literal;
+	}
+
+	/**
+	 * Adds a new clause.
+	 * Duplicated literals are removed.
+	 * @param literals the array with the literals
+	 * @param offset the first literal
+	 * @param length the count of literals
+	 * @return {@code true} if the database did not already contain this clause
+	 */
+	public boolean add(int[] literals, int offset, int length) {
+		ensureTable();
+		//remove duplicates while copying into the arena
+		ensureArena(arenaSize + length);
+		int start = arenaSize;
+		int size = 0;
+		int hash = 0;
+		nextStamp();
+		for (int i=offset; i<offset+length; i++) {
+			int l = literals[i];
+			if (l == 0) {
+				throw new IllegalArgumentException("0 ist kein Literal");
+			}
+			int index = index(l);
+			ensureMarks(index);
+			if (marks[index] == stamp) {
+				continue;
+			}
+			marks[index] = stamp;
+			arena[start + size] = l;
+			size++;
+			hash += mix(l);
+			maxVariable = Math.max(maxVariable, variable(l));
+		}
+		//literals are still marked
+		if (find(size, hash) >= 0) {
+			return false;
+		}
+		//append
+		if (count == starts.length) {
+			int capacity = count * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+		}
+		starts[count] = start;
+		lengths[count] = size;
+		hashes[count] = hash;
+		arenaSize += size;
+		count++;
+		if (count * 2 > table.length) {
+			rehash(table.length * 2);
+		} else {
+			insert(count - 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a new clause.
+	 * @param literals the literals
+	 * @return {@code true} if the database did not already contain this clause
+	 */
+	public boolean add(int... literals) {
+		return add(literals, 0, literals.length);
+	}
+
+	/**
+	 * Tests if the clause is contained in this database
+	 * @param literals the array with the literals
+	 * @param offset the first literal
+	 * @param length the count of literals
+	 * @return {@code true} if the database contains a clause with the same literals
+	 */
+	public boolean contains(int[] literals, int offset, int length) {
+		ensureTable();
+		int size = 0;
+		int hash = 0;
+		nextStamp();
+		for (int i=offset; i<offset+length; i++) {
+			int l = literals[i];
+			int index = index(l);
+			if (l == 0 || index >= marks.length) {
+				return false; //unknown variable
+			}
+			if (marks[index] == stamp) {
+				continue;
+			}
+			marks[index] = stamp;
+			size++;
+			hash += mix(l);
+		}
+		return find(size, hash) >= 0;
+	}
+
+	/**
+	 * @return the count of clauses
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the count of literals in all clauses
+	 */
+	public int getLiteralCount() {
+		return arenaSize;
+	}
+
+	/**
+	 * @return the highest variable index used in a clause
+	 */
+	public int getMaxVariable() {
+		return maxVariable;
+	}
+
+	/**
+	 * @param clause the clause index
+	 * @return the count of literals in this clause
+	 */
+	public int length(int clause) {
+		return lengths[clause];
+	}
+
+	/**
+	 * @param clause the clause index
+	 * @return the position of the first literal of the clause in {@link #getArena() }
+	 */
+	public int start(int clause) {
+		return starts[clause];
+	}
+
+	/**
+	 * @param clause the clause index
+	 * @param i the position in the clause
+	 * @return the i-th literal of the clause
+	 */
+	public int literal(int clause, int i) {
+		return arena[starts[clause] + i];
+	}
+
+	/**
+	 * Direct access to the literal arena for fast loops.
+	 * The array must not be modified and is only valid until the next clause
+	 * is added.
+	 * @return the array with all literals
+	 */
+	public int[] getArena() {
+		return arena;
+	}
+
+	/**
+	 * @param clause the clause index
+	 * @param literal the signed literal
+	 * @return {@code true} if the clause contains the literal
+	 */
+	public boolean contains(int clause, int literal) {
+		int start = starts[clause];
+		int end = start + lengths[clause];
+		for (int i=start; i<end; i++) {
+			if (arena[i] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Order independent hash of a clause.
+	 * @param clause the clause index
+	 * @return the hash code
+	 */
+	public int hash(int clause) {
+		return hashes[clause];
+	}
+
+	private static int mix(int literal) {
+		int h = literal * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void nextStamp() {
+		stamp++;
+		if (stamp == 0) {
+			Arrays.fill(marks, 0);
+			stamp = 1;
+		}
+	}
+
+	private void ensureMarks(int index) {
+		if (index >= marks.length) {
+			marks = Arrays.copyOf(marks, Math.max(index + 1, marks.length * 2));
+		}
+	}
+
+	private void ensureArena(int size) {
+		if (size > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(size, arena.length * 2));
+		}
+	}
+
+	/**
+	 * Searches a clause with the currently marked literals.
+	 * @param size the count of marked literals
+	 * @param hash the hash of the marked literals
+	 * @return the clause index or -1
+	 */
+	private int find(int size, int hash) {
+		int mask = table.length - 1;
+		for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			if ((int) (table[slot] >>> 32) != hash) {
+				continue;
+			}
+			int c = (int) table[slot] - 1;
+			if (lengths[c] != size) {
+				continue;
+			}
+			boolean equal = true;
+			for (int i=starts[c]; i<starts[c]+size; i++) {
+				if (marks[index(arena[i])] != stamp) {
+					equal = false;
+					break;
+				}
+			}
+			if (equal) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	private void insert(int clause) {
+		int mask = table.length - 1;
+		int slot = hashes[clause] & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = ((long) hashes[clause] << 32) | (clause + 1);
+	}
+
+	private void ensureTable() {
+		if (table == null) {
+			rehash(Integer.highestOneBit(Math.max(16, count) * 4));
+		}
+	}
+
+	private void rehash(int capacity) {
+		table = new long[capacity];
+		for (int c=0; c<count; c++) {
+			insert(c);
+		}
+	}
+}
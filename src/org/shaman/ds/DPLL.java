@@ -25,12 +25,133 @@ public class DPLL {
 	private final Set<Set<KNF.Literal>> allocations;
 	private Output debug;
 	private boolean goOn;
+	private SolverStatistics statistics;
+	private Trace trace;
+	private CancellationToken cancellation;
+	//the last call was stopped by the token
+	private boolean cancelled;
+	//receives the steps of the recursive algorithm
+	private Trace steps;
+	//counters of the recursive algorithm
+	private final SolverStatistics counters = new SolverStatistics();
 
 	public DPLL() {
 		allocation = new ArrayDeque<>();
 		allocations = new LinkedHashSet<>();
 	}
 
+	/**
+	 * Attaches statistics, every following call adds its counters and
+	 * timings to them.
+	 * @param statistics the statistics or {@code null}
+	 */
+	public synchronized void setStatistics(SolverStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the attached statistics or {@code null}
+	 */
+	public synchronized SolverStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Attaches a trace that receives the events of the following calls.
+	 * With a debug stream, the intermediate formulars of the recursive
+	 * algorithm go to this trace instead of the debug stream.
+	 * @param trace the trace or {@code null}
+	 */
+	public synchronized void setTrace(Trace trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * @return the attached trace or {@code null}
+	 */
+	public synchronized Trace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Sets the token that stops the following calls. A cancelled call returns
+	 * the allocations found so far and {@link #isCancelled() } is
+	 * {@code true}. The instance stays usable, unlike after
+	 * {@link Thread#stop() }.
+	 * @param cancellation the token or {@code null}
+	 */
+	public synchronized void setCancellationToken(CancellationToken cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * @return the cancellation token or {@code null}
+	 */
+	public synchronized CancellationToken getCancellationToken() {
+		return cancellation;
+	}
+
+	/**
+	 * @return {@code true} if the last call was stopped by the cancellation
+	 * token before it finished
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Searches one fullfilling allocation with conflict driven clause learning
+	 * like {@link #doCDCL(org.shaman.ds.KNF, org.shaman.ds.Output) } and stops
+	 * when the token is cancelled.
+	 * @param knf the knf formular
+	 * @param cancellation the token or {@code null}
+	 * @return the result, {@link SolverResult.Status#UNKNOWN} if it was
+	 * cancelled, with the statistics of this call
+	 */
+	public static SolverResult solve(KNF knf, CancellationToken cancellation) {
+		return solve(knf, cancellation, null);
+	}
+
+	/**
+	 * Like {@link #solve(org.shaman.ds.KNF, org.shaman.ds.CancellationToken) },
+	 * but looks the formular up in the cache first and stores the answer in it.
+	 * @param knf the knf formular
+	 * @param cancellation the token or {@code null}
+	 * @param cache the cache or {@code null}
+	 * @return the result, a cached result has empty statistics
+	 */
+	public static SolverResult solve(KNF knf, CancellationToken cancellation, SolutionCache cache) {
+		SolutionCache.Fingerprint key = null;
+		if (cache != null) {
+			key = SolutionCache.fingerprint(knf);
+			SolutionCache.Result cached = cache.get(key);
+			if (cached != null) {
+				return cached.toSolverResult();
+			}
+		}
+		SolverResult result = search(knf, cancellation);
+		if (cache != null && result.getStatus() != SolverResult.Status.UNKNOWN) {
+			cache.put(key, new SolutionCache.Result(result.getStatus() == SolverResult.Status.SATISFIABLE, result.getModel()));
+		}
+		return result;
+	}
+
+	private static SolverResult search(KNF knf, CancellationToken cancellation) {
+		SolverStatistics call = new SolverStatistics();
+		SearchEngine engine = new SearchEngine(knf, Heuristic.vsids());
+		engine.setStatistics(call);
+		engine.setCancellationToken(cancellation);
+		engine.setRestartPolicy(RestartPolicy.luby(100));
+		engine.setPhaseSaving(true);
+		if (engine.solve()) {
+			return new SolverResult(SolverResult.Status.SATISFIABLE, engine.getModel(), call);
+		} else if (engine.isInterrupted()) {
+			return new SolverResult(SolverResult.Status.UNKNOWN, null, call);
+		} else {
+			return new SolverResult(SolverResult.Status.UNSATISFIABLE, null, call);
+		}
+	}
+
 	/**
 	 * Executes the DPLL algorithm
 	 * @param knf the knf formular
@@ -43,28 +164,198 @@ public class DPLL {
 	 * a set of literals.
 	 */
 	public synchronized Set<Set<KNF.Literal>> doDPLL(KNF knf, Output debug, boolean goOn) {
+		return doDPLL(knf, debug, goOn, null);
+	}
+	
+	/**
+	 * Executes the DPLL algorithm with the specified branching heuristic.
+	 * The intermediate formulars are only printed with the default heuristic
+	 * ({@code heuristic} is {@code null}), otherwise the debug stream receives
+	 * the size of the search tree.
+	 * @param knf the knf formular
+	 * @param debug a debug stream or {@code null}
+	 * @param goOn set to true, if all fullfilling allocations should be found
+	 * @param heuristic a new instance of the branching heuristic or
+	 * {@code null} for the first literal of the first open clause
+	 * @return a set with all fullfilling allocations, see
+	 * {@link #doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }
+	 */
+	public synchronized Set<Set<KNF.Literal>> doDPLL(KNF knf, Output debug, boolean goOn, Heuristic heuristic) {
 		allocation.clear();
 		allocations.clear();
 		this.debug = debug;
 		this.goOn = goOn;
-		run(knf);
+		cancelled = false;
+		if (debug == null || heuristic != null) {
+			//no intermediate formulars needed, search on the trail
+			SearchEngine engine = new SearchEngine(knf, heuristic==null ? Heuristic.firstClause() : heuristic);
+			engine.setStatistics(statistics);
+			engine.setTrace(trace);
+			engine.setCancellationToken(cancellation);
+			while (engine.nextModel()) {
+				allocations.add(engine.getModel());
+				if (!goOn) {
+					break;
+				}
+			}
+			cancelled = engine.isInterrupted();
+			if (debug != null) {
+				debug.println(engine.getHeuristic()+": Entscheidungen: "+engine.getDecisionCount()+", Konflikte: "+engine.getConflictCount());
+			}
+		} else if (knf.getCount() > 0) {
+			long start = System.nanoTime();
+			counters.reset();
+			steps = trace != null ? trace : Trace.output(debug, Trace.Level.FINE);
+			run(knf);
+			counters.calls = 1;
+			counters.searchTime = System.nanoTime() - start;
+			if (statistics != null) {
+				statistics.add(counters, new SolverStatistics());
+			}
+		} else {
+			allocations.add(new LinkedHashSet<KNF.Literal>()); //empty formular is true
+		}
+		return allocations;
+	}
+
+	/**
+	 * Receives the fullfilling allocations while they are found.
+	 */
+	public static interface ModelSink {
+		/**
+		 * @param allocation the next fullfilling allocation
+		 * @return {@code true} to continue, {@code false} to stop the search
+		 */
+		boolean model(Set<KNF.Literal> allocation);
+	}
+
+	/**
+	 * Enumerates the fullfilling allocations lazily: the search continues
+	 * only when the next allocation is requested.
+	 * @param knf the knf formular, it must not be changed during the enumeration
+	 * @param limit the maximal count of allocations or a negative number for
+	 * no limit
+	 * @return the allocations in the order of
+	 * {@link #doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }
+	 */
+	public static Iterable<Set<KNF.Literal>> iterateDPLL(final KNF knf, final long limit) {
+		return new Iterable<Set<KNF.Literal>>() {
+			@Override
+			public Iterator<Set<KNF.Literal>> iterator() {
+				return new ModelIterator(knf, limit);
+			}
+		};
+	}
+
+	/**
+	 * Passes every fullfilling allocation to the sink as soon as it is found,
+	 * without collecting them.
+	 * @param knf the knf formular
+	 * @param sink receives the allocations
+	 * @param limit the maximal count of allocations or a negative number for
+	 * no limit
+	 * @return the count of allocations passed to the sink
+	 */
+	public static long doDPLL(KNF knf, ModelSink sink, long limit) {
+		return doDPLL(knf, sink, limit, null);
+	}
+
+	/**
+	 * Passes every fullfilling allocation to the sink as soon as it is found,
+	 * until the token is cancelled.
+	 * @param knf the knf formular
+	 * @param sink receives the allocations
+	 * @param limit the maximal count of allocations or a negative number for
+	 * no limit
+	 * @param cancellation the token or {@code null}
+	 * @return the count of allocations passed to the sink
+	 */
+	public static long doDPLL(KNF knf, ModelSink sink, long limit, CancellationToken cancellation) {
+		ModelIterator it = new ModelIterator(knf, limit);
+		it.setCancellationToken(cancellation);
+		while (it.hasNext()) {
+			if (!sink.model(it.next())) {
+				break;
+			}
+		}
+		return it.getCount();
+	}
+
+	/**
+	 * Searches one fullfilling allocation with conflict driven clause learning.
+	 * Unlike {@link #doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }
+	 * it learns a new clause from every conflict and jumps back over decisions
+	 * that did not contribute to the conflict.
+	 * @param knf the knf formular
+	 * @param debug a debug stream or {@code null}, only the count of
+	 * conflicts and learned clauses is printed
+	 * @return a set with the fullfilling allocation or an empty set if the
+	 * formular is unfullfillable
+	 */
+	public synchronized Set<Set<KNF.Literal>> doCDCL(KNF knf, Output debug) {
+		return doCDCL(knf, debug, Heuristic.vsids(), RestartPolicy.luby(100), true);
+	}
+	
+	/**
+	 * Searches one fullfilling allocation with conflict driven clause learning
+	 * and the specified branching heuristic, without restarts and phase saving.
+	 * @param knf the knf formular
+	 * @param debug a debug stream or {@code null}
+	 * @param heuristic a new instance of the branching heuristic
+	 * @return a set with the fullfilling allocation or an empty set if the
+	 * formular is unfullfillable
+	 */
+	public synchronized Set<Set<KNF.Literal>> doCDCL(KNF knf, Output debug, Heuristic heuristic) {
+		return doCDCL(knf, debug, heuristic, RestartPolicy.none(), false);
+	}
+	
+	/**
+	 * Searches one fullfilling allocation with conflict driven clause learning.
+	 * @param knf the knf formular
+	 * @param debug a debug stream or {@code null}
+	 * @param heuristic a new instance of the branching heuristic
+	 * @param restartPolicy a new instance of the restart policy
+	 * @param phaseSaving {@code true} if decisions should reuse the last value
+	 * of the variable
+	 * @return a set with the fullfilling allocation or an empty set if the
+	 * formular is unfullfillable
+	 */
+	public synchronized Set<Set<KNF.Literal>> doCDCL(KNF knf, Output debug, Heuristic heuristic,
+			RestartPolicy restartPolicy, boolean phaseSaving) {
+		allocation.clear();
+		allocations.clear();
+		SearchEngine engine = new SearchEngine(knf, heuristic);
+		engine.setStatistics(statistics);
+		engine.setTrace(trace);
+		engine.setCancellationToken(cancellation);
+		engine.setRestartPolicy(restartPolicy);
+		engine.setPhaseSaving(phaseSaving);
+		if (engine.solve()) {
+			allocations.add(engine.getModel());
+		}
+		cancelled = engine.isInterrupted();
+		if (debug!=null) {
+			debug.println(heuristic+", "+restartPolicy+": Entscheidungen: "+engine.getDecisionCount()
+					+", Konflikte: "+engine.getConflictCount()+", Restarts: "+engine.getRestartCount()
+					+", gelernte Klauseln: "+engine.getLearnedCount());
+		}
 		return allocations;
 	}
 	
 	private boolean run(KNF knf) {
+		if (cancellation != null && (cancelled || cancellation.isCancelled())) {
+			cancelled = true;
+			return false; //unwind the recursion
+		}
 		//find next literal
 		//search for one literal clauses
 		for (KNF.Clause c : knf) {
 			if (c.getCount()==1) {
 				//we found an one literal clause
 				KNF.Literal l = c.iterator().next();
-				int ret = doStep(knf, l);
-				if (ret==0) {
-					return false; //equals false
-				} else if (ret==1) {
-					return true; //equals true
-				}
-				//continue
+				//the literal is forced, no need to look at other clauses
+				counters.propagations++;
+				return doStep(knf, l)==1;
 			}
 		}
 		//pick the first literal
@@ -72,23 +363,32 @@ public class DPLL {
 		KNF.Literal l1 = c.iterator().next();
 		KNF.Literal l2 = new KNF.Literal(l1.getVariable(), !l1.isNegated());
 		//set to true
+		counters.decisions++;
 		int ret1 = doStep(knf, l1);
+		if (ret1==1) {
+			return true; //do not search for a second allocation
+		}
+		if (cancelled) {
+			return false;
+		}
 		//set to false
+		counters.backtracks++;
 		int ret2 = doStep(knf, l2);
 		
-		return (ret1==1) || (ret2==1);
+		return ret2==1;
 
 	}
 	
 	private int doStep(KNF knf, KNF.Literal l) {
 		SubFormular f = createSubFormular(knf, l, allocation.size());
+		counters.peakClauseCount = Math.max(counters.peakClauseCount, f.getCount());
 		//push literal
 		allocation.addLast(l);
 		//evaluate results
 		if (isTrue(f)) {
-			if (debug!=null) {
+			if (steps.isEnabled(Trace.Type.MODEL.getLevel())) {
 				KNF.Literal[] literals = allocation.toArray(new KNF.Literal[allocation.size()]);
-				System.out.println("Erfüllende Belegung gefunden: "+Arrays.toString(literals));
+				steps.event(new TraceEvent(Trace.Type.MODEL, allocation.size(), l, -1, -1, literals));
 			}
 			allocations.add(new LinkedHashSet<>(allocation));
 			if (goOn) {
@@ -98,6 +398,7 @@ public class DPLL {
 			return 1; //success
 		} else if (isFalse(f)) {
 			//not fullfillable
+			counters.conflicts++;
 			//pop literal
 			allocation.removeLast();
 			return 0; //fail
@@ -127,52 +428,76 @@ public class DPLL {
 	}
 	
 	private SubFormular createSubFormular(KNF knf, KNF.Literal l, int layer) {
-		//replace any existes of the literal with true, false
+		//remove the clauses with the literal and the negated literal from the others
 		KNF.Literal nl = new KNF.Literal(l.getVariable(), !l.isNegated());
-		KNF k1 = new KNF();
+		SubFormular k2 = new SubFormular(l, knf);
 		for (KNF.Clause c : knf) {
+			if (c.hasLiteral(l)) {
+				continue; //clause is true
+			}
 			KNF.Clause c2 = new KNF.Clause();
-			k1.addClause(c2);
 			for (KNF.Literal lit : c) {
-				if (lit.equals(l)) {
-					//replace with true
-					c2.addLiteral(TRUE_LITERAL);
-				} else if (lit.equals(nl)) {
-					//replace with false
-					c2.addLiteral(FALSE_LITERAL);
-				} else {
-					//keep it
+				if (!lit.equals(nl)) {
 					c2.addLiteral(lit);
 				}
 			}
-		}
-		
-		//simplify it
-		SubFormular k2 = new SubFormular(l, knf);
-		for (KNF.Clause c : k1) {
-			KNF.Clause c2 = c.copy();
-			//remove false literal
-			c2.removeLiteral(FALSE_LITERAL);
-			//check if one clause is true
-			if (c2.hasLiteral(TRUE_LITERAL)) {
-				//delete it
-				continue;
-			}
 			k2.addClause(c2);
 		}
 		
-		if (debug!=null) {
-			debug.print(SPACES.substring(0, layer*2));
-			debug.print(F+"["+l.getVariable()+"/"+(l.isNegated() ? FALSE : TRUE)+"]: ");
-			debug.println(k1);
-			debug.print(SPACES.substring(0, (layer+1)*2));
-			debug.print("= ");
-			debug.println(k2);
+		if (steps.isEnabled(Trace.Type.SUBSTITUTION.getLevel())) {
+			steps.event(new TraceEvent(Trace.Type.SUBSTITUTION, layer, l, -1, -1, new Substitution(knf, l, k2, layer)));
 		}
 		
 		return k2;
 	}
 	
+	/**
+	 * Renders one step of the recursive algorithm when the trace event is
+	 * rendered: the formular with the literal replaced by true and its
+	 * negation by false, and the simplified formular.
+	 */
+	private static class Substitution {
+		private final KNF knf;
+		private final KNF.Literal literal;
+		private final KNF result;
+		private final int layer;
+
+		private Substitution(KNF knf, KNF.Literal literal, KNF result, int layer) {
+			this.knf = knf;
+			this.literal = literal;
+			this.result = result;
+			this.layer = layer;
+		}
+
+		@Override
+		public String toString() {
+			//replace any existes of the literal with true, false
+			KNF.Literal nl = new KNF.Literal(literal.getVariable(), !literal.isNegated());
+			KNF k1 = new KNF();
+			for (KNF.Clause c : knf) {
+				KNF.Clause c2 = new KNF.Clause();
+				for (KNF.Literal lit : c) {
+					if (lit.equals(literal)) {
+						//replace with true
+						c2.addLiteral(TRUE_LITERAL);
+					} else if (lit.equals(nl)) {
+						//replace with false
+						c2.addLiteral(FALSE_LITERAL);
+					} else {
+						//keep it
+						c2.addLiteral(lit);
+					}
+				}
+				k1.addClause(c2);
+			}
+			return SPACES.substring(0, layer*2)
+					+ F+"["+literal.getVariable()+"/"+(literal.isNegated() ? FALSE : TRUE)+"]: "
+					+ k1 + "\n"
+					+ SPACES.substring(0, (layer+1)*2)
+					+ "= " + result;
+		}
+	}
+	
 	private static class SubFormular extends KNF {
 		private KNF.Literal removedLiteral;
 		private final KNF parent;
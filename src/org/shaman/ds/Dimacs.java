@@ -0,0 +1,625 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and writes formulars in the DIMACS CNF format:
+ * <pre>
+ * c comment
+ * p cnf 3 2
+ * 1 -3 0
+ * 2 3 -1 0
+ * </pre>
+ * The variable {@code n} is named {@code xn}, other names are written as
+ * comment lines {@code c v n name} before the header and used by the reader.
+ * The reader creates the variables up to the highest one a clause uses,
+ * declared variables after it are not created. If there is a header, the
+ * literals must not be larger than its count of variables and the count of
+ * clauses must be the one of the header.
+ * The reader tokenizes the bytes directly, no characters or strings are
+ * created for the clauses. Large files can be read in parallel with
+ * {@link #readMapped(java.io.File, int) }.
+ * @author Sebastian Weiß
+ */
+public class Dimacs {
+	private static final int BUFFER_SIZE = 1 << 16;
+	//the chunks of the mapped reader are at most this large
+	private static final long MAX_CHUNK = 1L << 28;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final KNF knf;
+	//the target of a chunk parser or null
+	private final Chunk chunk;
+	private int[] literals = new int[16];
+	private int line = 1;
+	private boolean started;
+	private String problem;
+	//the counts of the header or -1
+	private int declaredVariables = -1;
+	private int declaredClauses = -1;
+	private int headerLine;
+	private int clauses;
+
+	private Dimacs(ReadableByteChannel channel, ByteBuffer buffer, KNF knf, Chunk chunk) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.knf = knf;
+		this.chunk = chunk;
+	}
+
+	private Dimacs(ReadableByteChannel channel) {
+		this(channel, (ByteBuffer) ByteBuffer.allocate(BUFFER_SIZE).flip(), new KNF(), null);
+	}
+
+	/**
+	 * Reads a formular from a file.
+	 * @param file the DIMACS file
+	 * @return the formular
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if the file is not in the DIMACS format
+	 */
+	public static KNF read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new Dimacs(channel).parse();
+		}
+	}
+
+	/**
+	 * Reads a formular from a stream, the stream is not closed.
+	 * @param in the input
+	 * @return the formular
+	 * @throws IOException if the stream can not be read
+	 * @throws IllegalArgumentException if the input is not in the DIMACS format
+	 */
+	public static KNF read(InputStream in) throws IOException {
+		return new Dimacs(Channels.newChannel(in)).parse();
+	}
+
+	/**
+	 * Reads a large formular with one thread per processor, see
+	 * {@link #readMapped(java.io.File, int) }.
+	 * @param file the DIMACS file
+	 * @return the formular
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if the file is not in the DIMACS format
+	 */
+	public static KNF readMapped(File file) throws IOException {
+		return readMapped(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Reads a large formular in parallel. The file is split into chunks at
+	 * line ends that end a clause, each chunk is memory mapped and tokenized
+	 * by its own task into int literals. Then the clauses are added to the
+	 * formular in the order of the file. <br>
+	 * The result is the same as from {@link #read(java.io.File) }.
+	 * @param file the DIMACS file
+	 * @param threads the count of threads
+	 * @return the formular
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if the file is not in the DIMACS format
+	 */
+	public static KNF readMapped(File file, int threads) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			int count = (int) Math.max(threads * 4L, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+			List<Long> bounds = new ArrayList<>();
+			bounds.add(0L);
+			for (int i=1; i<count; i++) {
+				long b = nextBoundary(channel, Math.max(bounds.get(bounds.size() - 1), size * i / count));
+				if (b > bounds.get(bounds.size() - 1) && b < size) {
+					bounds.add(b);
+				}
+			}
+			bounds.add(size);
+
+			final KNF knf = new KNF();
+			final List<Chunk> chunks = new ArrayList<>();
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int i=0; i+1<bounds.size(); i++) {
+				final Chunk c = new Chunk();
+				final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+						bounds.get(i), bounds.get(i + 1) - bounds.get(i));
+				final boolean first = i == 0;
+				chunks.add(c);
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						//only the first chunk may name variables
+						Dimacs parser = new Dimacs(null, mapped, first ? knf : null, c);
+						try {
+							parser.parse();
+						} catch (IllegalArgumentException ex) {
+							c.problem = parser.problem;
+						}
+						c.lines = parser.line;
+						return null;
+					}
+				});
+			}
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+			try {
+				for (Future<Void> f : executor.invokeAll(tasks)) {
+					f.get();
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				throw new RuntimeException(ex.getCause());
+			} finally {
+				executor.shutdown();
+			}
+			return merge(knf, chunks);
+		}
+	}
+
+	private static KNF merge(KNF knf, List<Chunk> chunks) {
+		int line = 0;
+		int declared = chunks.get(0).declared;
+		int variables = 0;
+		int clauses = 0;
+		for (int i=0; i<chunks.size(); i++) {
+			Chunk c = chunks.get(i);
+			if (c.problem != null) {
+				throw new IllegalArgumentException("Zeile "+(line + c.lines)+": "+c.problem);
+			}
+			if (i > 0 && c.declared >= 0) {
+				throw new IllegalArgumentException("Zeile "+(line + c.declaredLine)+": Doppelte oder verspätete Kopfzeile");
+			}
+			if (declared >= 0 && c.maxVariable > declared) {
+				throw new IllegalArgumentException("Zeile "+(line + c.maxVariableLine)+": "
+						+tooLarge(c.maxVariable, declared));
+			}
+			variables = Math.max(variables, c.maxVariable);
+			clauses += c.count;
+			line += c.lines - 1;
+			if (c.ended) {
+				break;
+			}
+		}
+		int declaredClauses = chunks.get(0).declaredClauses;
+		if (declaredClauses >= 0 && clauses != declaredClauses) {
+			throw new IllegalArgumentException("Zeile "+chunks.get(0).declaredLine+": "
+					+wrongClauseCount(clauses, declaredClauses));
+		}
+		String duplicate = intern(knf.getVariables(), variables);
+		if (duplicate != null) {
+			throw new IllegalArgumentException(duplicateName(duplicate));
+		}
+		for (int i=0; i<chunks.size(); i++) {
+			Chunk c = chunks.get(i);
+			for (int j=0, p=0; j<c.count; p+=c.lengths[j], j++) {
+				knf.addClause(c.arena, p, c.lengths[j]);
+			}
+			chunks.set(i, null); //free the literals early
+			if (c.ended) {
+				break;
+			}
+		}
+		return knf;
+	}
+
+	/**
+	 * Finds the first position after the line end that ends a clause: the
+	 * last token of this line is a single 0 and the line is no comment.
+	 */
+	private static long nextBoundary(FileChannel channel, long position) throws IOException {
+		ByteBuffer window = ByteBuffer.allocate(BUFFER_SIZE);
+		long size = channel.size();
+		//skip the rest of the current line
+		boolean lineStart = false;
+		boolean comment = false;
+		int last = -1; //last token character: 0 for a single 0, 1 otherwise
+		int previous = '\n';
+		while (position < size) {
+			window.clear();
+			channel.read(window, position);
+			window.flip();
+			while (window.hasRemaining()) {
+				int c = window.get() & 0xff;
+				position++;
+				if (c == '\n') {
+					if (lineStart && !comment && last == 0) {
+						return position;
+					}
+					lineStart = true;
+					comment = false;
+					last = -1;
+				} else if (c == ' ' || c == '\t' || c == '\r') {
+					//whitespace
+				} else {
+					if (last < 0 && (c == 'c' || c == 'p' || c == '%')) {
+						comment = true;
+					}
+					boolean single = c == '0' && (previous == ' ' || previous == '\t' || previous == '\n');
+					last = single ? 0 : 1;
+				}
+				previous = c;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @param variable the variable index
+	 * @return the name of a variable read from DIMACS without a name comment
+	 */
+	public static String name(int variable) {
+		return "x" + variable;
+	}
+
+	private KNF parse() throws IOException {
+		int size = 0;
+		int c;
+		while ((c = next()) >= 0) {
+			if (c == '\n') {
+				line++;
+			} else if (c == ' ' || c == '\t' || c == '\r') {
+				//skip
+			} else if (c == 'c') {
+				comment();
+			} else if (c == 'p') {
+				if (started) {
+					throw error("Doppelte oder verspätete Kopfzeile");
+				}
+				started = true;
+				headerLine = line;
+				expect("cnf");
+				declaredVariables = number(next());
+				declaredClauses = number(next());
+				if (chunk != null) {
+					chunk.declared = declaredVariables;
+					chunk.declaredClauses = declaredClauses;
+					chunk.declaredLine = headerLine;
+				}
+			} else if (c == '%') {
+				//end marker of some benchmark files
+				if (chunk != null) {
+					chunk.ended = true;
+				}
+				break;
+			} else if (c == '-' || (c >= '0' && c <= '9')) {
+				started = true;
+				int l = number(c);
+				if (l == 0) {
+					clause(size);
+					size = 0;
+				} else {
+					if (size == literals.length) {
+						literals = Arrays.copyOf(literals, size * 2);
+					}
+					literals[size++] = l;
+					int variable = Math.abs(l);
+					if (declaredVariables >= 0 && variable > declaredVariables) {
+						throw error(tooLarge(variable, declaredVariables));
+					}
+					if (chunk == null) {
+						String duplicate = intern(knf.getVariables(), variable);
+						if (duplicate != null) {
+							throw error(duplicateName(duplicate));
+						}
+					} else if (variable > chunk.maxVariable) {
+						chunk.maxVariable = variable;
+						chunk.maxVariableLine = line;
+					}
+				}
+			} else {
+				throw error("Unerlaubtes Zeichen: "+(char) c);
+			}
+		}
+		if (size > 0) {
+			clause(size); //last clause without 0
+		}
+		if (chunk == null && declaredClauses >= 0 && clauses != declaredClauses) {
+			line = headerLine;
+			throw error(wrongClauseCount(clauses, declaredClauses));
+		}
+		return knf;
+	}
+
+	private void clause(int size) {
+		clauses++;
+		if (chunk == null) {
+			knf.addClause(literals, 0, size);
+		} else {
+			chunk.add(literals, size);
+		}
+	}
+
+	/**
+	 * Adds the variables up to the index with generated names.
+	 * @return {@code null} or the generated name that a name comment already
+	 * gave to another variable
+	 */
+	private static String intern(VariableTable variables, int variable) {
+		while (variables.size() < variable) {
+			int next = variables.size() + 1;
+			String name = name(next);
+			if (variables.intern(name) != next) {
+				return name; //already used, the table did not grow
+			}
+		}
+		return null;
+	}
+
+	private static String duplicateName(String name) {
+		return "Der Name "+name+" ist bereits an eine andere Variable vergeben";
+	}
+
+	private static String tooLarge(int variable, int declared) {
+		return "Die Variable "+variable+" ist größer als die "+declared+" Variablen der Kopfzeile";
+	}
+
+	private static String wrongClauseCount(int clauses, int declared) {
+		return "Die Kopfzeile gibt "+declared+" Klauseln an, gelesen wurden "+clauses;
+	}
+
+	/**
+	 * Skips a comment line, {@code c v n name} names the variable n.
+	 */
+	private void comment() throws IOException {
+		ByteArrayOutputStream bytes = null;
+		int c = next();
+		if (c == ' ') {
+			c = next();
+			if (c == 'v') {
+				bytes = new ByteArrayOutputStream();
+			}
+		}
+		while (c >= 0 && c != '\n') {
+			if (bytes != null) {
+				bytes.write(c);
+			}
+			c = next();
+		}
+		if (bytes != null) {
+			String[] parts = new String(bytes.toByteArray(), StandardCharsets.UTF_8).trim().split("\\s+");
+			if (parts.length == 3 && parts[0].equals("v")) {
+				VariableTable variables = knf == null ? null : knf.getVariables();
+				if (started || variables == null || !parts[1].equals(String.valueOf(variables.size() + 1))
+						|| variables.lookup(parts[2]) != 0) {
+					throw error("Variablennamen müssen vor der Kopfzeile in aufsteigender Reihenfolge stehen");
+				}
+				variables.intern(parts[2]);
+			}
+		}
+		if (c == '\n') {
+			line++;
+		}
+	}
+
+	private void expect(String word) throws IOException {
+		int c = next();
+		while (c == ' ' || c == '\t') {
+			c = next();
+		}
+		for (int i=0; i<word.length(); i++) {
+			if (c != word.charAt(i)) {
+				throw error(header(word));
+			}
+			c = next();
+		}
+		if (c != ' ' && c != '\t') {
+			throw error(header(word));
+		}
+	}
+
+	private static String header(String word) {
+		return "Kopfzeile muss 'p "+word+" Variablen Klauseln' sein";
+	}
+
+	/**
+	 * Parses a number, the first character is already read.
+	 */
+	private int number(int c) throws IOException {
+		while (c == ' ' || c == '\t') {
+			c = next();
+		}
+		boolean negative = c == '-';
+		if (negative) {
+			c = next();
+		}
+		if (c < '0' || c > '9') {
+			throw error("Zahl erwartet");
+		}
+		long value = 0;
+		while (c >= '0' && c <= '9') {
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error("Zahl zu groß");
+			}
+			c = next();
+		}
+		if (c == '\n') {
+			line++;
+		} else if (c >= 0 && c != ' ' && c != '\t' && c != '\r') {
+			throw error("Unerlaubtes Zeichen: "+(char) c);
+		}
+		return negative ? (int) -value : (int) value;
+	}
+
+	private int next() throws IOException {
+		if (!buffer.hasRemaining()) {
+			if (channel == null) {
+				return -1; //end of the chunk
+			}
+			buffer.clear();
+			int n;
+			do {
+				n = channel.read(buffer);
+			} while (n == 0);
+			buffer.flip();
+			if (n < 0) {
+				return -1;
+			}
+		}
+		return buffer.get() & 0xff;
+	}
+
+	private IllegalArgumentException error(String message) {
+		problem = message;
+		return new IllegalArgumentException("Zeile "+line+": "+message);
+	}
+
+	/**
+	 * Writes the formular in the DIMACS format, the stream is not closed.
+	 * @param knf the formular
+	 * @param out the output
+	 * @throws IOException if the stream can not be written
+	 */
+	public static void write(KNF knf, OutputStream out) throws IOException {
+		VariableTable variables = knf.getVariables();
+		ClauseDatabase db = knf.getDatabase();
+		Writer w = new Writer(out);
+		boolean named = false;
+		for (int v=1; v<=variables.size() && !named; v++) {
+			named = !variables.getName(v).equals(name(v));
+		}
+		if (named) {
+			//all names are needed to keep the numbering
+			for (int v=1; v<=variables.size(); v++) {
+				w.write("c v ").write(v).write(' ').write(variables.getName(v)).write('\n');
+			}
+		}
+		w.write("p cnf ").write(variables.size()).write(' ').write(db.size()).write('\n');
+		int[] arena = db.getArena();
+		for (int c=0; c<db.size(); c++) {
+			for (int i=db.start(c); i<db.start(c)+db.length(c); i++) {
+				w.write(arena[i]).write(' ');
+			}
+			w.write('0').write('\n');
+		}
+		w.flush();
+	}
+
+	/**
+	 * Writes the formular into a file.
+	 * @param knf the formular
+	 * @param file the DIMACS file
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(KNF knf, File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(knf, out);
+		}
+	}
+
+	/**
+	 * The clauses of one chunk of the mapped reader.
+	 */
+	private static class Chunk {
+		private int[] arena = new int[1024];
+		private int size;
+		private int[] lengths = new int[256];
+		private int count;
+		private int maxVariable;
+		private int maxVariableLine;
+		private int declared = -1;
+		private int declaredClauses = -1;
+		private int declaredLine;
+		private boolean ended;
+		private int lines;
+		private String problem;
+
+		private void add(int[] literals, int length) {
+			if (size + length > arena.length) {
+				arena = Arrays.copyOf(arena, Math.max(arena.length * 2, size + length));
+			}
+			System.arraycopy(literals, 0, arena, size, length);
+			size += length;
+			if (count == lengths.length) {
+				lengths = Arrays.copyOf(lengths, count * 2);
+			}
+			lengths[count++] = length;
+		}
+	}
+
+	/**
+	 * Formats numbers directly into a byte buffer.
+	 */
+	private static class Writer {
+		private final OutputStream out;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final byte[] digits = new byte[11];
+		private int size;
+
+		private Writer(OutputStream out) {
+			this.out = out;
+		}
+
+		private Writer write(char c) throws IOException {
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) c;
+			return this;
+		}
+
+		private Writer write(String s) throws IOException {
+			for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+				if (size == buffer.length) {
+					flush();
+				}
+				buffer[size++] = b;
+			}
+			return this;
+		}
+
+		private Writer write(int value) throws IOException {
+			if (size + digits.length > buffer.length) {
+				flush();
+			}
+			long v = value;
+			if (v < 0) {
+				buffer[size++] = '-';
+				v = -v;
+			}
+			int n = 0;
+			do {
+				digits[n++] = (byte) ('0' + v % 10);
+				v /= 10;
+			} while (v > 0);
+			while (n > 0) {
+				buffer[size++] = digits[--n];
+			}
+			return this;
+		}
+
+		private void flush() throws IOException {
+			out.write(buffer, 0, size);
+			size = 0;
+			out.flush();
+		}
+	}
+}
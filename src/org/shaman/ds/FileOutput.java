@@ -0,0 +1,101 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes into a file with a background thread, for traces that are too large
+ * for the text area. {@link #close() } waits until all text is written.
+ * @author Sebastian Weiß
+ */
+public class FileOutput extends BatchedOutput {
+	private static final int CHUNK = 1 << 16;
+
+	private final Writer writer;
+	private final Thread thread;
+	private volatile IOException error;
+
+	/**
+	 * Creates or overwrites the file.
+	 * @param file the file, it is written in UTF-8
+	 * @throws IOException if the file can not be created
+	 */
+	public FileOutput(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), CHUNK);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write();
+			}
+		}, "FileOutput-"+file.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Waits until all text is written and closes the file.
+	 */
+	@Override
+	public void close() {
+		super.close();
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the exception that stopped the writing or {@code null}
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	private void write() {
+		try {
+			while (true) {
+				boolean closed = isClosed();
+				StringBuilder chunk = drain(CHUNK);
+				if (chunk.length() > 0) {
+					writer.append(chunk);
+				} else if (closed) {
+					break; //everything printed before the close is written
+				} else {
+					writer.flush();
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+				}
+			}
+		} catch (IOException ex) {
+			error = ex;
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException ex) {
+				if (error == null) {
+					error = ex;
+				}
+			}
+		}
+	}
+}
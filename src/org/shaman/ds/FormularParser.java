@@ -0,0 +1,269 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Parses formulars in the syntax of {@link KNF#KNF(java.lang.String) }. <br>
+ * The input is read in blocks of chars and scanned by index. A variable name
+ * starts with a letter or an underscore (_) and can be followed by letters,
+ * digits and underscores, e.g. {@code x123}. The names are interned in the
+ * {@link VariableTable} of the formular and every clause is added as int
+ * literals, no clause or literal objects are created. <br>
+ * Errors are reported as {@link SyntaxException} with the line and column.
+ * @author Sebastian Weiß
+ */
+public class FormularParser {
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	private final CharSequence text;
+	private final Reader reader;
+	private final char[] buffer;
+	private int textPosition;
+	private int position;
+	private int limit;
+	private boolean end;
+	private int line = 1;
+	private int column = 1;
+
+	private final StringBuilder name = new StringBuilder();
+	private int[] literals = new int[16];
+
+	private FormularParser(CharSequence text, Reader reader) {
+		this.text = text;
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+
+	/**
+	 * Parses a formular.
+	 * @param formular the formular, e.g. {@code { {x1,x2}, {-x2} }}
+	 * @return the formular
+	 * @throws SyntaxException if the formular is not valid
+	 */
+	public static KNF parse(CharSequence formular) {
+		KNF knf = new KNF();
+		parse(formular, knf);
+		return knf;
+	}
+
+	/**
+	 * Parses a formular, the reader is not closed.
+	 * @param in the reader of the formular
+	 * @return the formular
+	 * @throws IOException if the reader throws it
+	 * @throws SyntaxException if the formular is not valid
+	 */
+	public static KNF parse(Reader in) throws IOException {
+		KNF knf = new KNF();
+		new FormularParser(null, in).parseFormular(knf);
+		return knf;
+	}
+
+	/**
+	 * Parses the formular into an empty formular, used by {@link KNF#KNF(java.lang.String) }.
+	 */
+	static void parse(CharSequence formular, KNF knf) {
+		try {
+			new FormularParser(formular, null).parseFormular(knf);
+		} catch (IOException ex) {
+			throw new AssertionError(ex); //a char sequence does not throw it
+		}
+	}
+
+	private void parseFormular(KNF knf) throws IOException {
+		skipWhitespaces();
+		if (peek() != '{') {
+			throw error("Eine Formel muss mit einer öffnenden geschweiften Klammer { beginnen");
+		}
+		next();
+		boolean clauseAdded = false;
+		while (true) {
+			skipWhitespaces();
+			int c = peek();
+			if (c < 0) {
+				throw error("Ende der Formel ohne eine schließende Klammer erreicht");
+			} else if (c == '{') {
+				if (clauseAdded) {
+					throw error("Zwei Klauseln müssen mit , oder ; getrennt werden");
+				}
+				next();
+				int length = parseClause(knf.getVariables());
+				knf.addClause(literals, 0, length);
+				clauseAdded = true;
+			} else if (isElementSeperator(c)) {
+				if (!clauseAdded) {
+					throw error("Die Trennzeichen , und ; dürfen nicht direkt hintereinander stehen");
+				}
+				next();
+				clauseAdded = false;
+			} else if (c == '}') {
+				next();
+				skipWhitespaces();
+				if (peek() >= 0) {
+					throw error("Formel wurde geschlossen, obwohl noch Zeichen übrig sind");
+				}
+				return;
+			} else {
+				throw error("Unerlaubtes Zeichen: "+(char) c);
+			}
+		}
+	}
+
+	/**
+	 * Parses the literals of a clause into {@link #literals} until the
+	 * closing brace.
+	 * @return the count of literals
+	 */
+	private int parseClause(VariableTable variables) throws IOException {
+		int length = 0;
+		boolean literalAdded = false;
+		while (true) {
+			skipWhitespaces();
+			int c = peek();
+			if (c < 0) {
+				throw error("Ende der Formel ohne eine schließende Klammer erreicht");
+			} else if (c == '}') {
+				next();
+				return length;
+			} else if (c == '-' || isVariableStart(c)) {
+				if (literalAdded) {
+					throw error("Zwei Literale müssen mit , oder ; getrennt werden");
+				}
+				boolean negated = c == '-';
+				if (negated) {
+					next();
+				}
+				int variable = variables.intern(parseName());
+				if (length == literals.length) {
+					literals = Arrays.copyOf(literals, length * 2);
+				}
+				literals[length++] = negated ? -variable : variable;
+				literalAdded = true;
+			} else if (isElementSeperator(c)) {
+				if (!literalAdded) {
+					throw error("Die Trennzeichen , und ; dürfen nicht direkt hintereinander stehen");
+				}
+				next();
+				literalAdded = false;
+			} else {
+				throw error("Unerlaubtes Zeichen: "+(char) c);
+			}
+		}
+	}
+
+	private String parseName() throws IOException {
+		int c = peek();
+		if (!isVariableStart(c)) {
+			throw error(c < 0 ? "Variablenname erwartet" : "Variablenname erwartet, stattdessen war es "+(char) c);
+		}
+		name.setLength(0);
+		while (c >= 0 && isVariablePart(c)) {
+			name.append((char) c);
+			next();
+			c = peek();
+		}
+		return name.toString();
+	}
+
+	private static boolean isElementSeperator(int c) {
+		return c==',' || c==';';
+	}
+	private static boolean isVariableStart(int c) {
+		return Character.isLetter(c) || c=='_';
+	}
+	private static boolean isVariablePart(int c) {
+		return Character.isLetterOrDigit(c) || c=='_';
+	}
+
+	private void skipWhitespaces() throws IOException {
+		int c;
+		while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+			next();
+		}
+	}
+
+	/**
+	 * @return the next char or -1 at the end of the input
+	 */
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	/**
+	 * Consumes the current char.
+	 */
+	private void next() {
+		if (buffer[position++] == '\n') {
+			line++;
+			column = 1;
+		} else {
+			column++;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (end) {
+			return false;
+		}
+		position = 0;
+		if (reader != null) {
+			limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+		} else {
+			limit = Math.min(buffer.length, text.length() - textPosition);
+			if (text instanceof String) {
+				((String) text).getChars(textPosition, textPosition + limit, buffer, 0);
+			} else {
+				for (int i=0; i<limit; i++) {
+					buffer[i] = text.charAt(textPosition + i);
+				}
+			}
+			textPosition += limit;
+		}
+		end = limit == 0;
+		return !end;
+	}
+
+	private SyntaxException error(String message) {
+		return new SyntaxException(message, line, column);
+	}
+
+	/**
+	 * Thrown if the formular is not valid.
+	 */
+	public static class SyntaxException extends IllegalArgumentException {
+		private static final long serialVersionUID = 1L;
+		private final int line;
+		private final int column;
+
+		public SyntaxException(String message, int line, int column) {
+			super("Zeile "+line+", Spalte "+column+": "+message);
+			this.line = line;
+			this.column = column;
+		}
+
+		/**
+		 * @return the line of the error, starting at 1
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the column of the error, starting at 1
+		 */
+		public int getColumn() {
+			return column;
+		}
+	}
+}
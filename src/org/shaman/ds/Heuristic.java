@@ -0,0 +1,428 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Decides on which literal the {@link SearchEngine} branches next.
+ * An instance holds the state for one engine, so a new instance has to be
+ * created for each search. The static methods create the available heuristics.
+ * @author Sebastian Weiß
+ */
+public abstract class Heuristic {
+	/**
+	 * The engine using this heuristic
+	 */
+	protected SearchEngine engine;
+
+	/**
+	 * Called once by the engine before the search starts.
+	 * @param engine the engine
+	 */
+	protected void attach(SearchEngine engine) {
+		if (this.engine != null) {
+			throw new IllegalStateException("Heuristik wird bereits verwendet");
+		}
+		this.engine = engine;
+	}
+
+	/**
+	 * Picks the next decision. It is only called if not all clauses are
+	 * satisfied and there is no conflict.
+	 * @return an unassigned literal
+	 */
+	protected abstract int pickBranchLiteral();
+
+	/**
+	 * Called for every variable that took part in a conflict.
+	 * @param variable the variable index
+	 */
+	protected void bump(int variable) {
+	}
+
+	/**
+	 * Called after every conflict.
+	 */
+	protected void conflict() {
+	}
+
+	/**
+	 * Called for every variable that is unassigned on backtracking.
+	 * @param variable the variable index
+	 */
+	protected void unassigned(int variable) {
+	}
+
+	/**
+	 * Called when clauses with new variables were added to the formular.
+	 * @param first the first new variable, the last one is
+	 * {@link SearchEngine#getVariableCount() }
+	 */
+	protected void variablesAdded(int first) {
+	}
+
+	/**
+	 * @return the name of the heuristic
+	 */
+	@Override
+	public abstract String toString();
+
+	/**
+	 * The first unassigned literal of the first clause that is not
+	 * satisfied, like the recursive DPLL. This is the default.
+	 * @return a new instance
+	 */
+	public static Heuristic firstClause() {
+		return new Heuristic() {
+			@Override
+			protected int pickBranchLiteral() {
+				int c = engine.firstUnsatisfiedClause();
+				for (int i=0; i<engine.getClauseLength(c); i++) {
+					int l = engine.getClauseLiteral(c, i);
+					if (engine.valueOf(l) == 0) {
+						return l;
+					}
+				}
+				throw new IllegalStateException("no unassigned literal in an open clause");
+			}
+
+			@Override
+			public String toString() {
+				return "FirstClause";
+			}
+		};
+	}
+
+	/**
+	 * Variable State Independent Decaying Sum: the variables of conflicts get
+	 * a higher activity, older conflicts count less. The unassigned variable
+	 * with the highest activity is taken from a binary heap, it is set to false.
+	 * @return a new instance
+	 */
+	public static Heuristic vsids() {
+		return new VSIDS(null);
+	}
+
+	/**
+	 * VSIDS with randomized initial activities and decision polarities, so
+	 * several searches with different seeds take different paths.
+	 * @param seed the seed of the random numbers
+	 * @return a new instance
+	 */
+	public static Heuristic vsids(long seed) {
+		return new VSIDS(new Random(seed));
+	}
+
+	/**
+	 * Maximum Occurrences in clauses of Minimum Size: counts the literals in
+	 * the shortest open clauses.
+	 * @return a new instance
+	 */
+	public static Heuristic moms() {
+		return new Counting("MOMS") {
+			@Override
+			protected int pickBranchLiteral() {
+				//find the minimum size of the open clauses
+				int min = Integer.MAX_VALUE;
+				for (int c=engine.firstUnsatisfiedClause(); c<engine.getClauseCount(); c++) {
+					if (!engine.isClauseSatisfied(c)) {
+						min = Math.min(min, openLength(c));
+					}
+				}
+				clear();
+				for (int c=engine.firstUnsatisfiedClause(); c<engine.getClauseCount(); c++) {
+					if (!engine.isClauseSatisfied(c) && openLength(c) == min) {
+						count(c, 1);
+					}
+				}
+				//(f(x) + f(-x)) * 2^k + f(x) * f(-x) with k = 4
+				int best = 0;
+				double bestScore = -1;
+				for (int v=1; v<=engine.getVariableCount(); v++) {
+					double p = scores[ClauseDatabase.index(v)];
+					double n = scores[ClauseDatabase.index(-v)];
+					double score = (p + n) * 16 + p * n;
+					if (engine.valueOf(v) == 0 && score > bestScore) {
+						bestScore = score;
+						best = p >= n ? v : -v;
+					}
+				}
+				return best;
+			}
+		};
+	}
+
+	/**
+	 * Jeroslow-Wang: every open clause adds {@code 2^-length} to the score of
+	 * its literals, the literal with the highest score is set to true.
+	 * @return a new instance
+	 */
+	public static Heuristic jeroslowWang() {
+		return new Counting("JeroslowWang") {
+			@Override
+			protected int pickBranchLiteral() {
+				clear();
+				for (int c=engine.firstUnsatisfiedClause(); c<engine.getClauseCount(); c++) {
+					if (!engine.isClauseSatisfied(c)) {
+						count(c, Math.pow(2, -openLength(c)));
+					}
+				}
+				return bestLiteral();
+			}
+		};
+	}
+
+	/**
+	 * Dynamic Largest Individual Sum: the literal that occurs most often in
+	 * the open clauses is set to true.
+	 * @return a new instance
+	 */
+	public static Heuristic dlis() {
+		return new Counting("DLIS") {
+			@Override
+			protected int pickBranchLiteral() {
+				clear();
+				for (int c=engine.firstUnsatisfiedClause(); c<engine.getClauseCount(); c++) {
+					if (!engine.isClauseSatisfied(c)) {
+						count(c, 1);
+					}
+				}
+				return bestLiteral();
+			}
+		};
+	}
+
+	/**
+	 * @param name the name of the heuristic: FirstClause, VSIDS, MOMS,
+	 * JeroslowWang or DLIS (case insensitive)
+	 * @return a new instance of this heuristic
+	 */
+	public static Heuristic forName(String name) {
+		switch (name.toLowerCase(Locale.ROOT)) {
+			case "firstclause": return firstClause();
+			case "vsids": return vsids();
+			case "moms": return moms();
+			case "jeroslowwang": return jeroslowWang();
+			case "dlis": return dlis();
+			default: throw new IllegalArgumentException("Unbekannte Heuristik: "+name);
+		}
+	}
+
+	/**
+	 * Base for the heuristics that count the literals in the open clauses.
+	 */
+	private static abstract class Counting extends Heuristic {
+		private final String name;
+		protected double[] scores;
+
+		private Counting(String name) {
+			this.name = name;
+		}
+
+		@Override
+		protected void attach(SearchEngine engine) {
+			super.attach(engine);
+			scores = new double[2 * engine.getVariableCount() + 2];
+		}
+
+		@Override
+		protected void variablesAdded(int first) {
+			scores = new double[2 * engine.getVariableCount() + 2];
+		}
+
+		protected void clear() {
+			Arrays.fill(scores, 0);
+		}
+
+		protected int openLength(int clause) {
+			int length = 0;
+			for (int i=0; i<engine.getClauseLength(clause); i++) {
+				if (engine.valueOf(engine.getClauseLiteral(clause, i)) == 0) {
+					length++;
+				}
+			}
+			return length;
+		}
+
+		protected void count(int clause, double weight) {
+			for (int i=0; i<engine.getClauseLength(clause); i++) {
+				int l = engine.getClauseLiteral(clause, i);
+				if (engine.valueOf(l) == 0) {
+					scores[ClauseDatabase.index(l)] += weight;
+				}
+			}
+		}
+
+		protected int bestLiteral() {
+			int best = 0;
+			double bestScore = 0;
+			for (int v=1; v<=engine.getVariableCount(); v++) {
+				if (engine.valueOf(v) != 0) {
+					continue;
+				}
+				double p = scores[ClauseDatabase.index(v)];
+				double n = scores[ClauseDatabase.index(-v)];
+				if (p > bestScore) {
+					bestScore = p;
+					best = v;
+				}
+				if (n > bestScore) {
+					bestScore = n;
+					best = -v;
+				}
+			}
+			return best;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static class VSIDS extends Heuristic {
+		private static final double DECAY = 0.95;
+		private final Random random;
+		private double[] activity;
+		private double increment = 1;
+		//binary max-heap of variables, position of each variable or -1
+		private int[] heap;
+		private int[] positions;
+		private int size;
+
+		private VSIDS(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		protected void attach(SearchEngine engine) {
+			super.attach(engine);
+			int variables = engine.getVariableCount();
+			activity = new double[variables + 1];
+			heap = new int[variables];
+			positions = new int[variables + 1];
+			positions[0] = -1;
+			for (int v=1; v<=variables; v++) {
+				if (random != null) {
+					activity[v] = random.nextDouble() * 1e-5;
+				}
+				heap[size] = v;
+				positions[v] = size;
+				up(size++);
+			}
+		}
+
+		@Override
+		protected void variablesAdded(int first) {
+			int variables = engine.getVariableCount();
+			activity = Arrays.copyOf(activity, variables + 1);
+			heap = Arrays.copyOf(heap, variables);
+			positions = Arrays.copyOf(positions, variables + 1);
+			for (int v=first; v<=variables; v++) {
+				if (random != null) {
+					activity[v] = random.nextDouble() * 1e-5;
+				}
+				heap[size] = v;
+				positions[v] = size;
+				up(size++);
+			}
+		}
+
+		@Override
+		protected int pickBranchLiteral() {
+			while (size > 0) {
+				int v = removeMax();
+				if (engine.valueOf(v) == 0) {
+					return random != null && random.nextBoolean() ? v : -v;
+				}
+			}
+			throw new IllegalStateException("no unassigned variable");
+		}
+
+		@Override
+		protected void bump(int variable) {
+			activity[variable] += increment;
+			if (activity[variable] > 1e100) {
+				//rescale, the order stays the same
+				for (int v=1; v<activity.length; v++) {
+					activity[v] *= 1e-100;
+				}
+				increment *= 1e-100;
+			}
+			if (positions[variable] >= 0) {
+				up(positions[variable]);
+			}
+		}
+
+		@Override
+		protected void conflict() {
+			increment /= DECAY;
+		}
+
+		@Override
+		protected void unassigned(int variable) {
+			if (positions[variable] < 0) {
+				heap[size] = variable;
+				positions[variable] = size++;
+				up(size - 1);
+			}
+		}
+
+		private int removeMax() {
+			int max = heap[0];
+			positions[max] = -1;
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				positions[heap[0]] = 0;
+				down(0);
+			}
+			return max;
+		}
+
+		private void up(int i) {
+			int v = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (activity[heap[parent]] >= activity[v]) {
+					break;
+				}
+				heap[i] = heap[parent];
+				positions[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = v;
+			positions[v] = i;
+		}
+
+		private void down(int i) {
+			int v = heap[i];
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]]) {
+					child++;
+				}
+				if (activity[heap[child]] <= activity[v]) {
+					break;
+				}
+				heap[i] = heap[child];
+				positions[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = v;
+			positions[v] = i;
+		}
+
+		@Override
+		public String toString() {
+			return random == null ? "VSIDS" : "VSIDS (zufällig)";
+		}
+	}
+}
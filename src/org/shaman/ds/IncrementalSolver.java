@@ -0,0 +1,168 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Answers many related questions about the same formular. Clauses can be
+ * added at any time and every call of {@link #solve(org.shaman.ds.KNF.Literal...) }
+ * can assume some literals. One {@link SearchEngine} is used for all calls,
+ * so the learned clauses and the branching heuristic are kept. <br>
+ * If the formular is unfullfillable under the assumptions,
+ * {@link #getFailedAssumptions() } tells which of them are responsible.
+ * @author Sebastian Weiß
+ */
+public class IncrementalSolver {
+	private final KNF knf;
+	private final SearchEngine engine;
+	private boolean solved;
+	private boolean satisfiable;
+
+	/**
+	 * Creates a solver without clauses, using VSIDS.
+	 */
+	public IncrementalSolver() {
+		this(new KNF());
+	}
+
+	/**
+	 * Creates a solver for the formular, using VSIDS.
+	 * @param knf the formular, it is copied and not changed
+	 */
+	public IncrementalSolver(KNF knf) {
+		this(knf, Heuristic.vsids());
+	}
+
+	/**
+	 * Creates a solver for the formular.
+	 * @param knf the formular, it is copied and not changed
+	 * @param heuristic the branching heuristic, a new instance
+	 */
+	public IncrementalSolver(KNF knf, Heuristic heuristic) {
+		this.knf = new KNF();
+		//same variable indices, so the clauses can be copied as they are
+		VariableTable variables = knf.getVariables();
+		for (int v=1; v<=variables.size(); v++) {
+			this.knf.getVariables().intern(variables.getName(v));
+		}
+		ClauseDatabase db = knf.getDatabase();
+		for (int c=0; c<db.size(); c++) {
+			this.knf.addClause(db.getArena(), db.start(c), db.length(c));
+		}
+		this.engine = new SearchEngine(this.knf, heuristic);
+	}
+
+	/**
+	 * Adds a clause, it is used by the next call of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) }.
+	 * @param clause the clause
+	 * @return {@code true} if the formular did not already contain this clause
+	 */
+	public boolean addClause(KNF.Clause clause) {
+		return knf.addClause(clause);
+	}
+
+	/**
+	 * Adds a clause, it is used by the next call of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) }.
+	 * @param literals the literals of the clause
+	 * @return {@code true} if the formular did not already contain this clause
+	 */
+	public boolean addClause(KNF.Literal... literals) {
+		KNF.Clause clause = new KNF.Clause();
+		for (KNF.Literal l : literals) {
+			clause.addLiteral(l);
+		}
+		return addClause(clause);
+	}
+
+	/**
+	 * Tests if the formular is fullfillable when all assumed literals are true.
+	 * @param assumptions the assumed literals, they can contain new variables
+	 * @return {@code true} if an allocation was found, it is then returned by
+	 * {@link #getModel() }; {@code false} if the formular is unfullfillable
+	 * under the assumptions or the solver was interrupted
+	 */
+	public boolean solve(KNF.Literal... assumptions) {
+		int[] literals = new int[assumptions.length];
+		for (int i=0; i<assumptions.length; i++) {
+			literals[i] = knf.getVariables().encode(assumptions[i]);
+		}
+		satisfiable = engine.solve(literals);
+		solved = true;
+		return satisfiable;
+	}
+
+	/**
+	 * @return the allocation found by the last call of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) }, it contains the assumptions
+	 * @throws IllegalStateException if the last call did not find one
+	 */
+	public Set<KNF.Literal> getModel() {
+		if (!satisfiable) {
+			throw new IllegalStateException("Keine erfüllende Belegung gefunden");
+		}
+		return engine.getModel();
+	}
+
+	/**
+	 * @return the assumptions of the last call of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) } that together make the
+	 * formular unfullfillable. It is empty if the formular is unfullfillable
+	 * without assumptions or the last call found an allocation.
+	 */
+	public Set<KNF.Literal> getFailedAssumptions() {
+		Set<KNF.Literal> core = new LinkedHashSet<>();
+		for (int l : engine.getFailedAssumptions()) {
+			core.add(knf.getVariables().decode(l));
+		}
+		return Collections.unmodifiableSet(core);
+	}
+
+	/**
+	 * @return {@code true} if the last call of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) } found the formular
+	 * unfullfillable even without assumptions, then every further call fails
+	 */
+	public boolean isUnsatisfiable() {
+		return solved && !satisfiable && engine.getFailedAssumptions().length == 0 && !engine.isInterrupted();
+	}
+
+	/**
+	 * Stops the current search, it can be called from any thread.
+	 */
+	public void interrupt() {
+		engine.interrupt();
+	}
+
+	/**
+	 * Sets the token that stops the following calls of
+	 * {@link #solve(org.shaman.ds.KNF.Literal...) }. After a cancelled call the
+	 * solver can be used again with a new token.
+	 * @param cancellation the token or {@code null}
+	 */
+	public void setCancellationToken(CancellationToken cancellation) {
+		engine.setCancellationToken(cancellation);
+	}
+
+	/**
+	 * @return the formular with all added clauses
+	 */
+	public KNF getFormular() {
+		return knf;
+	}
+
+	/**
+	 * @return the engine, for its statistics
+	 */
+	public SearchEngine getEngine() {
+		return engine;
+	}
+}
@@ -13,85 +13,46 @@ import java.util.*;
  * @author Sebastian Weiß
  */
 public class KNF implements Iterable<KNF.Clause>{
-	private final Set<Clause> clauses;
+	private final VariableTable variables;
+	private final ClauseDatabase database;
 	
 	/**
 	 * Constructs an empty formular.
 	 */
 	public KNF() {
-		clauses = new LinkedHashSet<>(); //Linked, to store order
+		variables = new VariableTable();
+		database = new ClauseDatabase(); //stores the order
+	}
+
+	/**
+	 * Constructs a formular from already encoded clauses, used by the readers.
+	 * @param variables the variables
+	 * @param database the clauses
+	 */
+	KNF(VariableTable variables, ClauseDatabase database) {
+		this.variables = variables;
+		this.database = database;
 	}
 	
 	/**
 	 * Parses the specified formular string. <br>
 	 * The syntax is as follows: { {1. Clause}, {2. Clause}, ...}.
 	 * Each clause has this syntax: {a, b, c, -d, -e, ...}.
-	 * Each variable can be negated by a minus sign (-), has consist of one
-	 * letter. Each elements (a literal in a clause, a clause in the formular)
+	 * Each variable can be negated by a minus sign (-). A variable name starts
+	 * with a letter or an underscore and can contain letters, digits and
+	 * underscores. Each elements (a literal in a clause, a clause in the formular)
 	 * can be seperated by a comma (,) or a semicolon (;). Groups (the formular
 	 * and the clauses) are opened and claused with { and }. Each Clause has to 
 	 * be enclosed by { and }, even if it contains only one literal. 
 	 * Whitespaces are ignored. <br>
 	 * Example: {@code { {a,b}, {-b, c}, {a, -c},{-a} }.
 	 * @param formular 
+	 * @throws FormularParser.SyntaxException if the formular is not valid
+	 * @see FormularParser
 	 */
 	public KNF(String formular) {
 		this();
-		//build char queue
-		formular = formular.trim();
-		Queue<Character> chars = new ArrayDeque<>(formular.length());
-		for (int i=0; i<formular.length(); i++) {
-			chars.offer(formular.charAt(i));
-		}
-		if (!isOpenBrace(chars.poll())) {
-			throw new IllegalArgumentException("Eine Formel muss mit einer öffnenden geschweiften Klammer { beginnens");
-		}
-		boolean clauseAdded = false;
-		while(!chars.isEmpty()) {
-			char c = chars.poll();
-			if (isWhitespace(c)) {
-				continue;
-			} else if (isOpenBrace(c)) {
-				if (clauseAdded) {
-					throw new IllegalArgumentException("Zwei Klauseln müssen mit , oder ; getrennt werden");
-				}
-				clauses.add(new Clause(chars)); //reads the input until the next }
-				clauseAdded = true;
-			} else if (isElementSeperator(c)) {
-				if (clauseAdded) {
-					clauseAdded = false; //everything is fine
-				} else {
-					throw new IllegalArgumentException("Die Trennzeichen , und ; dürfen nicht direkt hintereinander stehen");
-				}
-			} else if (isClosingBrace(c)) {
-				if (!chars.isEmpty()) {
-					throw new IllegalArgumentException("Formel wurde geschlossen, obwohl noch Zeichen übrig sind");
-				}
-				return; //end
-			} else {
-				throw new IllegalArgumentException("Unerlaubtes Zeichen: "+c);
-			}
-		}
-		throw new IllegalArgumentException("Ende der Formel ohne eine schließende Klammer erreicht");
-	}
-	
-	private static boolean isOpenBrace(char c) {
-		return c=='{';
-	}
-	private static boolean isClosingBrace(char c) {
-		return c=='}';
-	}
-	private static boolean isWhitespace(char c) {
-		return Character.isWhitespace(c);
-	}
-	private static boolean isElementSeperator(char c) {
-		return c==',' || c==';';
-	}
-	private static boolean isVariable(char c) {
-		return Character.isLetter(c);
-	}
-	private static boolean isNegation(char c) {
-		return c=='-';
+		FormularParser.parse(formular, this);
 	}
 	
 	/**
@@ -100,27 +61,108 @@ public class KNF implements Iterable<KNF.Clause>{
 	 * @return {@code true} if this formular did not already contain this clause
 	 */
 	public boolean addClause(Clause clause) {
-		return clauses.add(clause);
+		if (clause.owner == this) {
+			return false;
+		}
+		int[] literals = new int[clause.getCount()];
+		int i = 0;
+		for (Literal l : clause) {
+			literals[i++] = variables.encode(l);
+		}
+		return database.add(literals, 0, literals.length);
 	}
 	
+	/**
+	 * Adds a clause of encoded literals, used by the readers. The variables
+	 * have to be interned already.
+	 * @param literals the array with the literals
+	 * @param offset the first literal
+	 * @param length the count of literals
+	 * @return {@code true} if this formular did not already contain this clause
+	 */
+	boolean addClause(int[] literals, int offset, int length) {
+		return database.add(literals, offset, length);
+	}
+
 	public boolean containsClause(Clause clause) {
-		return clauses.contains(clause);
+		if (clause.owner == this) {
+			return true;
+		}
+		int[] literals = new int[clause.getCount()];
+		int i = 0;
+		for (Literal l : clause) {
+			int code = variables.lookup(l);
+			if (code == 0) {
+				return false; //unknown variable
+			}
+			literals[i++] = code;
+		}
+		return database.contains(literals, 0, literals.length);
 	}
 	
 	/**
 	 * @return The count of clauses in this formular
 	 */
 	public int getCount() {
-		return clauses.size();
+		return database.size();
+	}
+	
+	/**
+	 * @param index the index of the clause, in the order they were added
+	 * @return a view on this clause
+	 */
+	public Clause getClause(int index) {
+		if (index < 0 || index >= database.size()) {
+			throw new IndexOutOfBoundsException("clause "+index);
+		}
+		return new Clause(this, index);
+	}
+	
+	/**
+	 * @return the table of the variable names used by the clauses
+	 */
+	public VariableTable getVariables() {
+		return variables;
+	}
+	
+	/**
+	 * @return the int-encoded clauses of this formular
+	 */
+	public ClauseDatabase getDatabase() {
+		return database;
 	}
 	
 	public Clause[] toArray() {
-		return clauses.toArray(new Clause[clauses.size()]);
+		Clause[] array = new Clause[database.size()];
+		for (int i=0; i<array.length; i++) {
+			array[i] = new Clause(this, i);
+		}
+		return array;
 	}
 
 	@Override
 	public Iterator<Clause> iterator() {
-		return clauses.iterator();
+		return new Iterator<Clause>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < database.size();
+			}
+
+			@Override
+			public Clause next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return new Clause(KNF.this, next++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	@Override
@@ -141,38 +183,26 @@ public class KNF implements Iterable<KNF.Clause>{
 		return str.toString();
 	}
 	
+	/**
+	 * A clause. It is either a view on a clause inside a formular (then it can
+	 * not be modified) or a free clause that is filled with
+	 * {@link #addLiteral(org.shaman.ds.KNF.Literal) }.
+	 */
 	public static class Clause implements Iterable<KNF.Literal> {
 		private final Set<Literal> literals;
+		private final KNF owner;
+		private final int index;
 
 		public Clause() {
 			this.literals = new LinkedHashSet<>();
+			this.owner = null;
+			this.index = -1;
 		}
 		
-		private Clause(Queue<Character> text) {
-			this();
-			boolean literalAdded = false;
-			while(!text.isEmpty()) {
-				char c = text.poll();
-				if (isWhitespace(c)) {
-					continue;
-				} else if (isClosingBrace(c)) {
-					return; //close this clause
-				} else if (isNegation(c) || isVariable(c)) {
-					if (literalAdded) {
-						throw new IllegalArgumentException("Zwei Literale müssen mit , oder ; getrennt werden");
-					}
-					literals.add(new Literal(c, text));
-					literalAdded = true;
-				} else if (isElementSeperator(c)) {
-					if (literalAdded) {
-						literalAdded = false; //everything is fine
-					} else {
-						throw new IllegalArgumentException("Die Trennzeichen , und ; dürfen nicht direkt hintereinander stehen");
-					}
-				} else {
-					throw new IllegalArgumentException("Unerlaubtes Zeichen: "+c);
-				}
-			}
+		private Clause(KNF owner, int index) {
+			this.literals = null;
+			this.owner = owner;
+			this.index = index;
 		}
 		
 		/**
@@ -181,52 +211,107 @@ public class KNF implements Iterable<KNF.Clause>{
 		 * @return {@code true} if this clause did not already contain the literal
 		 */
 		public boolean addLiteral(Literal literal) {
+			checkModifiable();
 			return literals.add(literal);
 		}
 		
 		public boolean hasLiteral(Literal literal) {
-			return literals.contains(literal);
+			if (owner == null) {
+				return literals.contains(literal);
+			}
+			int code = owner.variables.lookup(literal);
+			return code != 0 && owner.database.contains(index, code);
 		}
 		
 		public boolean removeLiteral(Literal literal) {
+			checkModifiable();
 			return literals.remove(literal);
 		}
 		
+		private void checkModifiable() {
+			if (owner != null) {
+				throw new UnsupportedOperationException("Klauseln einer Formel können nicht verändert werden");
+			}
+		}
+		
 		/**
 		 * @return the count of literals
 		 */
 		public int getCount() {
-			return literals.size();
+			if (owner == null) {
+				return literals.size();
+			}
+			return owner.database.length(index);
 		}
 		
 		public Literal[] toArray() {
-			return literals.toArray(new Literal[literals.size()]);
+			if (owner == null) {
+				return literals.toArray(new Literal[literals.size()]);
+			}
+			Literal[] array = new Literal[owner.database.length(index)];
+			for (int i=0; i<array.length; i++) {
+				array[i] = owner.variables.decode(owner.database.literal(index, i));
+			}
+			return array;
 		}
 
 		@Override
 		public Iterator<Literal> iterator() {
-			return literals.iterator();
+			if (owner == null) {
+				return literals.iterator();
+			}
+			return new Iterator<Literal>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < owner.database.length(index);
+				}
+
+				@Override
+				public Literal next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return owner.variables.decode(owner.database.literal(index, next++));
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
 		}
 
 		@Override
 		public int hashCode() {
+			//same as the hash code of the literal set
+			int literalHash = 0;
+			for (Literal l : this) {
+				literalHash += l.hashCode();
+			}
 			int hash = 7;
-			hash = 11 * hash + Objects.hashCode(this.literals);
+			hash = 11 * hash + literalHash;
 			return hash;
 		}
 
 		@Override
 		public boolean equals(Object obj) {
-			if (obj == null) {
-				return false;
+			if (obj == this) {
+				return true;
 			}
-			if (getClass() != obj.getClass()) {
+			if (!(obj instanceof Clause)) {
 				return false;
 			}
 			final Clause other = (Clause) obj;
-			if (!Objects.equals(this.literals, other.literals)) {
+			if (getCount() != other.getCount()) {
 				return false;
 			}
+			for (Literal l : this) {
+				if (!other.hasLiteral(l)) {
+					return false;
+				}
+			}
 			return true;
 		}
 
@@ -270,21 +355,6 @@ public class KNF implements Iterable<KNF.Clause>{
 			this.negated = negated;
 		}
 		
-		private Literal(char c1, Queue<Character> text) {
-			char c2;
-			if (isNegation(c1)) {
-				negated = true;
-				c2 = text.poll();
-			} else {
-				negated = false;
-				c2 = c1;
-			}
-			if (!isVariable(c2)) {
-				throw new IllegalArgumentException("Variablenname erwartet, stattdessen war es "+c2);
-			}
-			variable = String.valueOf(c2);
-		}
-
 		public String getVariable() {
 			return variable;
 		}
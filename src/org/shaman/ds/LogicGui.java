@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Set;
 import java.util.logging.Level;
@@ -89,6 +90,8 @@ public class LogicGui extends javax.swing.JFrame {
 		 */
 		private final int algorithm;
 		private final Output out;
+		//stops the solvers, they leave their data consistent
+		private final CancellationToken cancellation = CancellationToken.create();
 
 		private Worker(int algorithm, Output out) {
 			this.algorithm = algorithm;
@@ -105,27 +108,53 @@ public class LogicGui extends javax.swing.JFrame {
 			try {
 				switch (algorithm) {
 					case 1:
-						boolean ret = Resolution.doResolution(knf, debug);
-						if (ret) {
+						SolverResult.Status status = Resolution.solve(knf, debug, cancellation).getStatus();
+						if (status == SolverResult.Status.UNSATISFIABLE) {
 							out.println("\nFormel unerfüllbar");
-						} else {
+						} else if (status == SolverResult.Status.SATISFIABLE) {
 							out.println("\nFormel erfüllbar");
 						}
 						break;
 					case 2:
-						doDPLL(knf, out, debug, false);
+						if (debug == null) {
+							DPLL dpll = new DPLL();
+							dpll.setCancellationToken(cancellation);
+							Set<Set<KNF.Literal>> allocations = dpll.doCDCL(knf, null);
+							if (!dpll.isCancelled()) {
+								printAllocations(allocations, out);
+							}
+						} else {
+							doDPLL(knf, out, debug, false);
+						}
 						break;
 					case 3:
-						doDPLL(knf, out, debug, true);
+						if (debug == null) {
+							streamAllocations(knf, out);
+						} else {
+							doDPLL(knf, out, debug, true);
+						}
+						//the allocations above can leave variables open
+						ModelCounter counter = new ModelCounter();
+						counter.setCancellationToken(cancellation);
+						BigInteger count = counter.count(knf);
+						if (count != null) {
+							out.println("Anzahl aller erfüllenden Belegungen: "+count);
+						}
 						break;
 				}
+				if (cancellation.isCancelled()) {
+					out.println("\n\nAbbruch!");
+				}
 			} finally {
 				out.close();
 				SwingUtilities.invokeLater(new Runnable() {
 
 					@Override
 					public void run() {
-						switchPhase(2);
+						if (worker == Worker.this) {
+							worker = null;
+							switchPhase(2);
+						}
 					}
 				});
 				
@@ -134,7 +163,34 @@ public class LogicGui extends javax.swing.JFrame {
 		
 		private void doDPLL(KNF knf, Output ps, Output debug, boolean goOn) {
 			DPLL dpll = new DPLL();
+			dpll.setCancellationToken(cancellation);
 			Set<Set<KNF.Literal>> allocations = dpll.doDPLL(knf, debug, goOn);
+			if (!dpll.isCancelled()) {
+				printAllocations(allocations, ps);
+			}
+		}
+		
+		private void streamAllocations(KNF knf, final Output ps) {
+			ps.println("\nErfüllende Belegungen:");
+			long count = DPLL.doDPLL(knf, new DPLL.ModelSink() {
+				@Override
+				public boolean model(Set<KNF.Literal> allocation) {
+					ps.println(Arrays.toString(allocation.toArray()));
+					return true;
+				}
+			}, -1, cancellation);
+			if (cancellation.isCancelled()) {
+				return;
+			}
+			if (count == 0) {
+				ps.println("\nKeine erfüllende Belegung gefunden,");
+				ps.println("Formel ist unerfüllbar");
+			} else {
+				ps.println("("+count+" Stück)");
+			}
+		}
+
+		private void printAllocations(Set<Set<KNF.Literal>> allocations, Output ps) {
 			if (allocations.isEmpty()) {
 				ps.println("\nKeine erfüllende Belegung gefunden,");
 				ps.println("Formel ist unerfüllbar");
@@ -146,38 +202,6 @@ public class LogicGui extends javax.swing.JFrame {
 		}
 	}
 	
-	private class TextAreaOutput extends Output {
-
-		private final JTextArea textArea;
-
-		public TextAreaOutput(final JTextArea textArea) {
-			this.textArea = textArea;
-		}
-
-		@Override
-		public void close() {
-		}
-
-		@Override
-		public void print(final Object obj) {
-			SwingUtilities.invokeLater(new Runnable() {
-				public void run() {
-					textArea.append(String.valueOf(obj));
-				}
-			});
-		}
-
-		@Override
-		public void println(final Object obj) {
-			SwingUtilities.invokeLater(new Runnable() {
-				public void run() {
-					textArea.append(String.valueOf(obj));
-					textArea.append("\n");
-				}
-			});
-		}
-	}
-	
 	private void start(int algorithm) {
 		textArea.setText("");
 		textArea.setForeground(Color.BLACK);
@@ -214,7 +238,7 @@ public class LogicGui extends javax.swing.JFrame {
         setMinimumSize(new java.awt.Dimension(635, 462));
 
         jLabel1.setText("KNF-Formel:");
-        jLabel1.setToolTipText("<html>\nSyntax: geschweifte Klammern { und } öffnen, bzw. schließen die Formel, bzw. die Klauseln. <br>\nEin Komma (,) oder ein Semikolon (;) trennt die Literale und Klauseln voneinander. <br>\nLiterale dürfen nur aus einem Zeichen (ein Buchstabe) bestehen, Negation wird durch ein Minus (-) gesetzt.<br>\nWhitespaces werden ignoriert.\n</html>");
+        jLabel1.setToolTipText("<html>\nSyntax: geschweifte Klammern { und } öffnen, bzw. schließen die Formel, bzw. die Klauseln. <br>\nEin Komma (,) oder ein Semikolon (;) trennt die Literale und Klauseln voneinander. <br>\nVariablennamen beginnen mit einem Buchstaben oder einem Unterstrich (_) und dürfen Buchstaben, Ziffern und _ enthalten (z.B. x12), Negation wird durch ein Minus (-) gesetzt.<br>\nWhitespaces werden ignoriert.\n</html>");
 
         textArea.setEditable(false);
         textArea.setColumns(20);
@@ -222,7 +246,7 @@ public class LogicGui extends javax.swing.JFrame {
         textArea.setRows(5);
         jScrollPane1.setViewportView(textArea);
 
-        formularTextField.setToolTipText("<html> Syntax: geschweifte Klammern { und } öffnen, bzw. schließen die Formel, bzw. die Klauseln. <br> Ein Komma (,) oder ein Semikolon (;) trennt die Literale und Klauseln voneinander. <br> Literale dürfen nur aus einem Zeichen (ein Buchstabe) bestehen, Negation wird durch ein Minus (-) gesetzt.<br> Whitespaces werden ignoriert. </html>");
+        formularTextField.setToolTipText("<html> Syntax: geschweifte Klammern { und } öffnen, bzw. schließen die Formel, bzw. die Klauseln. <br> Ein Komma (,) oder ein Semikolon (;) trennt die Literale und Klauseln voneinander. <br> Variablennamen beginnen mit einem Buchstaben oder einem Unterstrich (_) und dürfen Buchstaben, Ziffern und _ enthalten (z.B. x12), Negation wird durch ein Minus (-) gesetzt.<br> Whitespaces werden ignoriert. </html>");
 
         formularButton.setText("Formel einlesen");
         formularButton.addActionListener(new java.awt.event.ActionListener() {
@@ -367,10 +391,9 @@ public class LogicGui extends javax.swing.JFrame {
 
     private void stopEvent(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_stopEvent
         if (worker!=null) {
-			worker.stop();
-			worker = null;
-			switchPhase(2);
-			textArea.append("\n\nAbbruch!");
+			//the worker prints the message and switches the phase when it ends
+			worker.cancellation.cancel();
+			stopButton.setEnabled(false);
 		}
     }//GEN-LAST:event_stopEvent
 
@@ -0,0 +1,489 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the fullfilling allocations of a formular without enumerating them.
+ * Every variable of the formular counts, so a variable that does not matter
+ * doubles the count. <br>
+ * The counter branches like DPLL, but it splits the remaining clauses into
+ * components without common variables and multiplies their counts. The
+ * count of each component is cached, so a component that is reached again
+ * over another branch is not searched again. <br>
+ * The search runs on an explicit stack over one trail of assignments, so the
+ * depth is not limited by the call stack. Units are propagated over
+ * occurrence lists.
+ * @author Sebastian Weiß
+ */
+public class ModelCounter {
+	private static final Component[] NO_COMPONENTS = new Component[0];
+
+	private final int maxCacheSize;
+	private final Map<Component, BigInteger> cache = new HashMap<>();
+	//the clauses without tautologies and the clauses of each literal,
+	//indexed by ClauseDatabase.index(literal)
+	private int[][] clauses;
+	private int[][] occurrences;
+	//the assignment, 1 true, -1 false, 0 open, and the assigned literals
+	private int[] values;
+	private int[] trail;
+	private int trailSize;
+	//the last collected component
+	private int[] componentVariables;
+	private int componentVariableCount;
+	private int[] componentClauses;
+	private int componentClauseCount;
+	//scratch arrays
+	private int[] branchVariables;
+	private Component[] components;
+	private int[] variableMarks;
+	private int[] clauseMarks;
+	private int[] splitMarks;
+	private int[] positive;
+	private int[] negative;
+	private int stamp;
+	private long decisions;
+	private long cacheHits;
+	private CancellationToken cancellation;
+
+	/**
+	 * Creates a counter with a cache of up to one million components.
+	 */
+	public ModelCounter() {
+		this(1000000);
+	}
+
+	/**
+	 * @param maxCacheSize the maximal count of cached components, the cache
+	 * is cleared when it is full
+	 */
+	public ModelCounter(int maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Sets the token that stops the following counts.
+	 * @param cancellation the token or {@code null}
+	 */
+	public synchronized void setCancellationToken(CancellationToken cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * Counts the fullfilling allocations.
+	 * @param knf the knf formular
+	 * @return the count of allocations of all variables of the formular that
+	 * fullfill it, {@code null} if the cancellation token stopped it
+	 */
+	public synchronized BigInteger count(KNF knf) {
+		load(knf.getDatabase(), knf.getVariables().size());
+		decisions = 0;
+		cacheHits = 0;
+		cache.clear();
+		try {
+			return search();
+		} finally {
+			clauses = null;
+			occurrences = null;
+		}
+	}
+
+	/**
+	 * @return the count of decisions of the last count
+	 */
+	public long getDecisionCount() {
+		return decisions;
+	}
+
+	/**
+	 * @return the count of components of the last count that were found in the cache
+	 */
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	private void load(ClauseDatabase db, int variables) {
+		variables = Math.max(variables, db.getMaxVariable());
+		int count = 0;
+		int[] sizes = new int[2 * variables + 2];
+		clauses = new int[db.size()][];
+		for (int c=0; c<db.size(); c++) {
+			int[] clause = new int[db.length(c)];
+			for (int i=0; i<clause.length; i++) {
+				clause[i] = db.literal(c, i);
+			}
+			if (!isTautology(clause)) {
+				clauses[count++] = clause;
+				for (int l : clause) {
+					sizes[ClauseDatabase.index(l)]++;
+				}
+			}
+		}
+		clauses = Arrays.copyOf(clauses, count);
+		occurrences = new int[sizes.length][];
+		for (int i=0; i<sizes.length; i++) {
+			occurrences[i] = new int[sizes[i]];
+			sizes[i] = 0;
+		}
+		for (int c=0; c<count; c++) {
+			for (int l : clauses[c]) {
+				int index = ClauseDatabase.index(l);
+				occurrences[index][sizes[index]++] = c;
+			}
+		}
+		values = new int[variables + 1];
+		trail = new int[variables];
+		trailSize = 0;
+		componentVariables = new int[variables];
+		componentClauses = new int[count];
+		branchVariables = new int[variables];
+		components = new Component[variables];
+		variableMarks = new int[variables + 1];
+		clauseMarks = new int[count];
+		splitMarks = new int[variables + 1];
+		positive = new int[variables + 1];
+		negative = new int[variables + 1];
+		stamp = 0;
+	}
+
+	/**
+	 * Counts all components of the formular, the root frame assigns the unit
+	 * clauses instead of a decision.
+	 */
+	private BigInteger search() {
+		Deque<Frame> stack = new ArrayDeque<>();
+		Frame root = new Frame(null);
+		stack.push(root);
+		startBranch(root);
+		BigInteger result = null;
+		while (!stack.isEmpty()) {
+			Frame f = stack.peek();
+			if (result != null) {
+				f.product = f.product.multiply(result);
+				result = null;
+			}
+			if (f.product.signum() != 0 && f.next < f.components.length) {
+				Frame child = new Frame(f.components[f.next++]);
+				result = enter(child);
+				if (result == null) {
+					if (cancellation != null && cancellation.isCancelled()) {
+						return null;
+					}
+					stack.push(child);
+					startBranch(child);
+				}
+				continue;
+			}
+			//the branch is counted
+			f.sum = f.sum.add(f.product);
+			undo(f.mark);
+			f.branch++;
+			if (f.key != null && f.branch < 2) {
+				startBranch(f);
+				continue;
+			}
+			stack.pop();
+			if (f.key != null) {
+				store(f);
+			}
+			result = f.sum;
+		}
+		return result;
+	}
+
+	/**
+	 * Looks the component of the new frame up and picks the branch literal.
+	 * @return the cached count or {@code null} if the frame has to be searched
+	 */
+	private BigInteger enter(Frame f) {
+		BigInteger count = cache.get(f.key);
+		if (count != null) {
+			cacheHits++;
+			return count;
+		}
+		decisions++;
+		f.literal = pickBranchLiteral(f.key);
+		return null;
+	}
+
+	private void store(Frame f) {
+		if (cache.size() >= maxCacheSize) {
+			cache.clear();
+		}
+		cache.put(f.key, f.sum);
+	}
+
+	/**
+	 * Assigns the literal of the current branch, propagates it and splits
+	 * the rest of the component.
+	 */
+	private void startBranch(Frame f) {
+		f.mark = trailSize;
+		f.next = 0;
+		int count;
+		boolean consistent;
+		if (f.key == null) {
+			count = values.length - 1;
+			for (int v=1; v<=count; v++) {
+				branchVariables[v - 1] = v;
+			}
+			consistent = assignUnits();
+		} else {
+			count = f.key.getVariableCount();
+			System.arraycopy(f.key.data, 1, branchVariables, 0, count);
+			int literal = f.branch == 0 ? f.literal : -f.literal;
+			assign(literal);
+			consistent = propagate(f.mark);
+		}
+		if (!consistent) {
+			f.product = BigInteger.ZERO;
+			f.components = NO_COMPONENTS;
+			return;
+		}
+		//split the open variables into components, variables without an
+		//open clause are free
+		int split = ++stamp;
+		int free = 0;
+		int componentCount = 0;
+		for (int i=0; i<count; i++) {
+			int v = branchVariables[i];
+			if (values[v] != 0 || splitMarks[v] == split) {
+				continue;
+			}
+			collect(v);
+			for (int j=0; j<componentVariableCount; j++) {
+				splitMarks[componentVariables[j]] = split;
+			}
+			if (componentClauseCount == 0) {
+				free++;
+			} else {
+				components[componentCount++] = new Component(this);
+			}
+		}
+		f.product = BigInteger.ONE.shiftLeft(free);
+		f.components = Arrays.copyOf(components, componentCount);
+	}
+
+	private boolean assignUnits() {
+		for (int[] c : clauses) {
+			if (c.length == 0) {
+				return false;
+			} else if (c.length == 1) {
+				int value = values[ClauseDatabase.variable(c[0])];
+				if (value == 0) {
+					assign(c[0]);
+				} else if (value != Integer.signum(c[0])) {
+					return false;
+				}
+			}
+		}
+		return propagate(0);
+	}
+
+	private void assign(int literal) {
+		values[ClauseDatabase.variable(literal)] = Integer.signum(literal);
+		trail[trailSize++] = literal;
+	}
+
+	/**
+	 * Propagates the assignments on the trail starting at the given position.
+	 * @return {@code false} on a conflict
+	 */
+	private boolean propagate(int head) {
+		while (head < trailSize) {
+			int literal = trail[head++];
+			for (int c : occurrences[ClauseDatabase.index(-literal)]) {
+				int open = 0;
+				int unit = 0;
+				boolean satisfied = false;
+				for (int l : clauses[c]) {
+					int value = values[ClauseDatabase.variable(l)];
+					if (value == 0) {
+						open++;
+						unit = l;
+					} else if (value == Integer.signum(l)) {
+						satisfied = true;
+						break;
+					}
+				}
+				if (satisfied) {
+					continue;
+				}
+				if (open == 0) {
+					return false;
+				} else if (open == 1) {
+					assign(unit);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void undo(int mark) {
+		while (trailSize > mark) {
+			values[ClauseDatabase.variable(trail[--trailSize])] = 0;
+		}
+	}
+
+	/**
+	 * Collects the open variables and the open clauses that are connected
+	 * with the open variable.
+	 */
+	private void collect(int seed) {
+		int s = ++stamp;
+		componentVariableCount = 0;
+		componentClauseCount = 0;
+		componentVariables[componentVariableCount++] = seed;
+		variableMarks[seed] = s;
+		for (int i=0; i<componentVariableCount; i++) {
+			int v = componentVariables[i];
+			for (int index = 2*v; index <= 2*v + 1; index++) {
+				for (int c : occurrences[index]) {
+					if (clauseMarks[c] == s) {
+						continue;
+					}
+					clauseMarks[c] = s;
+					if (isSatisfied(clauses[c])) {
+						continue;
+					}
+					componentClauses[componentClauseCount++] = c;
+					for (int l : clauses[c]) {
+						int u = ClauseDatabase.variable(l);
+						if (values[u] == 0 && variableMarks[u] != s) {
+							variableMarks[u] = s;
+							componentVariables[componentVariableCount++] = u;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isSatisfied(int[] clause) {
+		for (int l : clause) {
+			if (values[ClauseDatabase.variable(l)] == Integer.signum(l)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The variable of the component that occurs most often, it connects the
+	 * most clauses. Of equal variables the middle one is taken, on long chains
+	 * of clauses this cuts the component into halves instead of shortening it
+	 * by one variable. The polarity with more occurrences is taken first.
+	 */
+	private int pickBranchLiteral(Component component) {
+		int[] data = component.data;
+		int variables = component.getVariableCount();
+		for (int i=1; i<=variables; i++) {
+			positive[data[i]] = 0;
+			negative[data[i]] = 0;
+		}
+		for (int i=variables+1; i<data.length; i++) {
+			for (int l : clauses[data[i]]) {
+				if (l > 0) {
+					positive[l]++;
+				} else {
+					negative[-l]++;
+				}
+			}
+		}
+		int middle = 1 + variables / 2;
+		int best = 0;
+		int bestCount = 0;
+		int bestDistance = 0;
+		for (int i=1; i<=variables; i++) {
+			int v = data[i];
+			int n = positive[v] + negative[v];
+			int distance = Math.abs(i - middle);
+			if (n > bestCount || (n == bestCount && distance < bestDistance)) {
+				best = v;
+				bestCount = n;
+				bestDistance = distance;
+			}
+		}
+		return positive[best] >= negative[best] ? best : -best;
+	}
+
+	private static boolean isTautology(int[] clause) {
+		for (int i=0; i<clause.length; i++) {
+			for (int j=i+1; j<clause.length; j++) {
+				if (clause[i] == -clause[j]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A component on the search stack.
+	 */
+	private static class Frame {
+		//the component, null for the whole formular
+		private final Component key;
+		private int literal;
+		//0 for the first, 1 for the second branch
+		private int branch;
+		//the size of the trail before the branch
+		private int mark;
+		private BigInteger sum = BigInteger.ZERO;
+		//the count of the current branch and the components it still needs
+		private BigInteger product;
+		private Component[] components;
+		private int next;
+
+		private Frame(Component key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The key of the cache: the sorted open variables and open clauses of the
+	 * collected component. Together with the clauses they determine the rest
+	 * of the formular.
+	 */
+	private static class Component {
+		private final int[] data;
+		private final int hash;
+
+		private Component(ModelCounter counter) {
+			int variables = counter.componentVariableCount;
+			int clauses = counter.componentClauseCount;
+			data = new int[variables + clauses + 1];
+			data[0] = variables;
+			System.arraycopy(counter.componentVariables, 0, data, 1, variables);
+			System.arraycopy(counter.componentClauses, 0, data, variables + 1, clauses);
+			Arrays.sort(data, 1, variables + 1);
+			Arrays.sort(data, variables + 1, data.length);
+			hash = Arrays.hashCode(data);
+		}
+
+		private int getVariableCount() {
+			return data[0];
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Component && Arrays.equals(data, ((Component) obj).data);
+		}
+	}
+}
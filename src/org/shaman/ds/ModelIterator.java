@@ -0,0 +1,103 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Yields the fullfilling allocations of a formular one after another.
+ * The next allocation is only searched when it is requested, so only the
+ * current allocation is held in memory. The allocations come in the same
+ * order as from {@link DPLL#doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }.
+ * @author Sebastian Weiß
+ */
+public class ModelIterator implements Iterator<Set<KNF.Literal>> {
+	private final SearchEngine engine;
+	private final long limit;
+	private long count;
+	//1: the engine stands on a model that was not returned yet, 0: unknown, -1: done
+	private int state;
+
+	/**
+	 * Enumerates all fullfilling allocations.
+	 * @param knf the knf formular, it must not be changed during the enumeration
+	 */
+	public ModelIterator(KNF knf) {
+		this(knf, -1);
+	}
+
+	/**
+	 * @param knf the knf formular, it must not be changed during the enumeration
+	 * @param limit the maximal count of allocations or a negative number for
+	 * no limit
+	 */
+	public ModelIterator(KNF knf, long limit) {
+		this.engine = new SearchEngine(knf);
+		this.limit = limit;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (state == 0) {
+			if (limit >= 0 && count >= limit) {
+				state = -1;
+			} else {
+				state = engine.nextModel() ? 1 : -1;
+			}
+		}
+		return state > 0;
+	}
+
+	@Override
+	public Set<KNF.Literal> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		state = 0;
+		count++;
+		return engine.getModel();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return the count of allocations returned so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Stops the enumeration, can be called from another thread. A search that
+	 * is running in {@link #hasNext() } ends without a further allocation.
+	 */
+	public void interrupt() {
+		engine.interrupt();
+	}
+
+	/**
+	 * Sets the token that stops the search in {@link #hasNext() }, which
+	 * then returns {@code false}.
+	 * @param cancellation the token or {@code null}
+	 */
+	public void setCancellationToken(CancellationToken cancellation) {
+		engine.setCancellationToken(cancellation);
+	}
+
+	/**
+	 * @return {@code true} if the enumeration ended because of an interrupt
+	 * or the cancellation token, not because all allocations were found
+	 */
+	public boolean isCancelled() {
+		return engine.isInterrupted();
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * DPLL that searches all fullfilling allocations in parallel (cube and conquer).
+ * The upper part of the search tree is split into cubes: each node of it
+ * becomes a fork-join task that forks one task for the literal and one for
+ * its negation. Below the cubes, every task enumerates its subtree with a
+ * {@link SearchEngine}. Idle threads steal the open tasks. <br>
+ * The branching follows the same rule as the sequential DPLL, so the result
+ * contains the same allocations in the same order.
+ * @author Sebastian Weiß
+ */
+public class ParallelDPLL {
+	private final ForkJoinPool pool;
+	private final int maxDepth;
+
+	/**
+	 * Uses all available processors.
+	 */
+	public ParallelDPLL() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads the count of threads
+	 */
+	public ParallelDPLL(int threads) {
+		this.pool = new ForkJoinPool(threads);
+		//enough cubes to balance subtrees of different size
+		this.maxDepth = 32 - Integer.numberOfLeadingZeros(threads * 16);
+	}
+
+	/**
+	 * Executes the DPLL algorithm.
+	 * @param knf the knf formular, it must not be changed during the search
+	 * @param goOn set to true, if all fullfilling allocations should be found.
+	 * Only this mode is parallelized.
+	 * @return a set with all fullfilling allocations, like
+	 * {@link DPLL#doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) }
+	 */
+	public Set<Set<KNF.Literal>> doDPLL(KNF knf, boolean goOn) {
+		if (!goOn) {
+			return new DPLL().doDPLL(knf, null, false);
+		}
+		//the engines are dropped with the map, the pool threads keep nothing
+		ConcurrentMap<Thread, SearchEngine> engines = new ConcurrentHashMap<>();
+		List<int[]> models = pool.invoke(new CubeTask(knf, engines, new int[0]));
+		VariableTable variables = knf.getVariables();
+		Set<Set<KNF.Literal>> allocations = new LinkedHashSet<>();
+		for (int[] model : models) {
+			Set<KNF.Literal> allocation = new LinkedHashSet<>();
+			for (int l : model) {
+				allocation.add(variables.decode(l));
+			}
+			allocations.add(allocation);
+		}
+		return allocations;
+	}
+
+	/**
+	 * Stops the threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private class CubeTask extends RecursiveTask<List<int[]>> {
+		private static final long serialVersionUID = 1L;
+		private final KNF knf;
+		//one engine per thread of this call, reset for every cube
+		private final ConcurrentMap<Thread, SearchEngine> engines;
+		private final int[] cube;
+
+		private CubeTask(KNF knf, ConcurrentMap<Thread, SearchEngine> engines, int[] cube) {
+			this.knf = knf;
+			this.engines = engines;
+			this.cube = cube;
+		}
+
+		@Override
+		protected List<int[]> compute() {
+			List<int[]> models = new ArrayList<>();
+			SearchEngine engine = engines.get(Thread.currentThread());
+			if (engine == null) {
+				engine = new SearchEngine(knf);
+				engines.put(Thread.currentThread(), engine);
+			}
+			engine.reset();
+			int state = engine.assignCube(cube);
+			if (state < 0) {
+				return models;
+			} else if (state > 0) {
+				models.add(engine.getModelLiterals());
+				return models;
+			}
+			if (cube.length < maxDepth && getSurplusQueuedTaskCount() < 3) {
+				//split, the engine must not be used after forking because
+				//this thread may run other tasks while it waits
+				int literal = engine.nextDecision();
+				CubeTask positive = new CubeTask(knf, engines, extend(literal));
+				CubeTask negative = new CubeTask(knf, engines, extend(-literal));
+				negative.fork();
+				models.addAll(positive.compute());
+				models.addAll(negative.join());
+				return models;
+			}
+			//conquer the subtree sequentially
+			while (engine.nextModel()) {
+				models.add(engine.getModelLiterals());
+			}
+			return models;
+		}
+
+		private int[] extend(int literal) {
+			int[] c = new int[cube.length + 1];
+			System.arraycopy(cube, 0, c, 0, cube.length);
+			c[cube.length] = literal;
+			return c;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs several differently configured CDCL searches on the same formular in
+ * parallel. The first search that finishes wins, the others are interrupted.
+ * @author Sebastian Weiß
+ */
+public class PortfolioSolver {
+	private final ExecutorService executor;
+	private final List<Configuration> configurations;
+	private Configuration winner;
+
+	/**
+	 * One configuration of the search engine.
+	 */
+	public static class Configuration {
+		private final String heuristic;
+		private final String restartPolicy;
+		private final boolean phaseSaving;
+		private final long seed;
+
+		/**
+		 * @param heuristic the name of the heuristic, see {@link Heuristic#forName(java.lang.String) }
+		 * @param restartPolicy the name of the restart policy, see {@link RestartPolicy#forName(java.lang.String) }
+		 * @param phaseSaving {@code true} to enable phase saving
+		 * @param seed the seed for VSIDS, 0 for no randomization
+		 */
+		public Configuration(String heuristic, String restartPolicy, boolean phaseSaving, long seed) {
+			this.heuristic = heuristic;
+			this.restartPolicy = restartPolicy;
+			this.phaseSaving = phaseSaving;
+			this.seed = seed;
+		}
+
+		private SearchEngine createEngine(KNF knf) {
+			Heuristic h = seed != 0 && heuristic.equalsIgnoreCase("vsids")
+					? Heuristic.vsids(seed) : Heuristic.forName(heuristic);
+			SearchEngine engine = new SearchEngine(knf, h);
+			engine.setRestartPolicy(RestartPolicy.forName(restartPolicy));
+			engine.setPhaseSaving(phaseSaving);
+			return engine;
+		}
+
+		@Override
+		public String toString() {
+			return heuristic+"/"+restartPolicy+(phaseSaving ? "/Phase" : "")+(seed != 0 ? "/"+seed : "");
+		}
+	}
+
+	/**
+	 * Creates a portfolio with one search per available processor.
+	 */
+	public PortfolioSolver() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a portfolio with the default configurations.
+	 * @param threads the count of parallel searches
+	 */
+	public PortfolioSolver(int threads) {
+		this(defaultConfigurations(threads));
+	}
+
+	/**
+	 * Creates a portfolio with one thread per configuration.
+	 * @param configurations the configurations
+	 */
+	public PortfolioSolver(List<Configuration> configurations) {
+		if (configurations.isEmpty()) {
+			throw new IllegalArgumentException("Mindestens eine Konfiguration wird benötigt");
+		}
+		this.configurations = new ArrayList<>(configurations);
+		this.executor = Executors.newFixedThreadPool(configurations.size(), new ThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Portfolio-"+(++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Creates different configurations: first the combinations of the
+	 * heuristics and restart policies, then VSIDS with different seeds.
+	 * @param count the count of configurations
+	 * @return the configurations
+	 */
+	public static List<Configuration> defaultConfigurations(int count) {
+		String[][] base = {
+			{"VSIDS", "Luby"},
+			{"VSIDS", "Glucose"},
+			{"VSIDS", "Geometric"},
+			{"VSIDS", "None"},
+			{"JeroslowWang", "Luby"},
+			{"DLIS", "Luby"},
+		};
+		List<Configuration> list = new ArrayList<>(count);
+		for (int i=0; i<count; i++) {
+			if (i < base.length) {
+				list.add(new Configuration(base[i][0], base[i][1], true, 0));
+			} else {
+				String restart = base[i % 3][1];
+				list.add(new Configuration("VSIDS", restart, i % 2 == 0, i));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Searches one fullfilling allocation.
+	 * @param knf the knf formular, it must not be changed during the search
+	 * @param debug a debug stream or {@code null}, it receives the winning
+	 * configuration
+	 * @return a set with the fullfilling allocation or an empty set if the
+	 * formular is unfullfillable, like {@link DPLL#doDPLL(org.shaman.ds.KNF, org.shaman.ds.Output, boolean) };
+	 * {@code null} if the calling thread was interrupted before a search finished
+	 */
+	public synchronized Set<Set<KNF.Literal>> solve(final KNF knf, Output debug) {
+		CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+		final List<SearchEngine> engines = new ArrayList<>(configurations.size());
+		for (Configuration c : configurations) {
+			engines.add(c.createEngine(knf));
+		}
+		List<Future<Integer>> futures = new ArrayList<>(engines.size());
+		for (int i=0; i<engines.size(); i++) {
+			final int index = i;
+			futures.add(completion.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					engines.get(index).solve();
+					return index;
+				}
+			}));
+		}
+
+		int first = -1;
+		try {
+			first = completion.take().get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		} finally {
+			//stop the others and wait until they noticed it
+			for (SearchEngine e : engines) {
+				e.interrupt();
+			}
+			for (Future<Integer> f : futures) {
+				try {
+					f.get();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					//already reported by the first result or not relevant
+				}
+			}
+		}
+
+		if (first < 0) {
+			return null; //interrupted, no answer
+		}
+		Set<Set<KNF.Literal>> allocations = new LinkedHashSet<>();
+		winner = configurations.get(first);
+		SearchEngine engine = engines.get(first);
+		if (engine.solve()) {
+			allocations.add(engine.getModel());
+		}
+		if (debug != null) {
+			debug.println("Gewinner: "+winner+", Konflikte: "+engine.getConflictCount());
+		}
+		return allocations;
+	}
+
+	/**
+	 * @return the configuration that won the last search
+	 */
+	public Configuration getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Stops the threads of this portfolio.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,792 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Simplifies a formular before it is solved. The result is a new formular
+ * that is fullfillable if and only if the input is, it can be passed to
+ * {@link DPLL} or {@link Resolution}. An allocation of the result is extended
+ * with {@link #extend(java.util.Set) } to a full allocation of the input. <br>
+ * The unit clauses are always propagated. The passes are run one after
+ * another until none of them changes the formular:
+ * <ul>
+ * <li>pure literals: a variable that occurs with only one sign is set</li>
+ * <li>subsumption: clauses that are supersets of other clauses are removed,
+ * and self-subsuming resolution removes a literal from a clause if the
+ * resolvent with another clause is a subset of it</li>
+ * <li>equivalent literals: the strongly connected components of the
+ * implication graph of the binary clauses are equivalent, all literals are
+ * replaced by the representative of their component</li>
+ * <li>failed literals: if setting a literal leads to a conflict by unit
+ * propagation, its negation is added as unit</li>
+ * <li>bounded variable elimination: the clauses of a variable are replaced
+ * by all their resolvents on this variable if there are not more of them</li>
+ * </ul>
+ * The clauses that are removed together with a variable are remembered with
+ * the literal that satisfies them. They are checked in reverse order to
+ * extend an allocation.
+ * @author Sebastian Weiß
+ */
+public class Preprocessor {
+	private static final int MAX_ROUNDS = 10;
+
+	/**
+	 * The passes of the preprocessing.
+	 */
+	public static enum Pass {
+		PURE_LITERALS("Reine Literale"),
+		SUBSUMPTION("Subsumtion"),
+		EQUIVALENT_LITERALS("Äquivalente Literale"),
+		FAILED_LITERALS("Gescheiterte Literale"),
+		VARIABLE_ELIMINATION("Variablenelimination");
+
+		private final String name;
+
+		private Pass(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private final boolean[] enabled;
+	private int maxOccurrences = 10;
+	private int maxResolventLength = 20;
+	private final long[] times;
+	private final int[] removedClauses;
+	private final int[] removedVariables;
+
+	//the formular during the preprocessing
+	private VariableTable variables;
+	private int variableCount;
+	private int[][] clauses;
+	private int clauseCount;
+	private int liveClauses;
+	private int[][] occurrences;
+	private int[] occurrenceCounts;
+	//fixed value of each variable: 1, -1 or 0
+	private int[] values;
+	//variables that were eliminated or replaced by an equivalent literal
+	private boolean[] removed;
+	private int removedCount;
+	private int[] units;
+	private int unitCount;
+	private int unitHead;
+	private boolean unsatisfiable;
+	//the removed clauses, the first element is the literal that satisfies it
+	private final List<int[]> reconstruction = new ArrayList<>();
+	private int[] marks;
+	private int stamp;
+
+	/**
+	 * Creates a preprocessor with all passes enabled.
+	 */
+	public Preprocessor() {
+		int passes = Pass.values().length;
+		enabled = new boolean[passes];
+		Arrays.fill(enabled, true);
+		times = new long[passes];
+		removedClauses = new int[passes];
+		removedVariables = new int[passes];
+	}
+
+	/**
+	 * @param pass the pass
+	 * @param enabled {@code true} if it should be run
+	 */
+	public void setEnabled(Pass pass, boolean enabled) {
+		this.enabled[pass.ordinal()] = enabled;
+	}
+
+	/**
+	 * @param pass the pass
+	 * @return {@code true} if it is run
+	 */
+	public boolean isEnabled(Pass pass) {
+		return enabled[pass.ordinal()];
+	}
+
+	/**
+	 * Limits the bounded variable elimination.
+	 * @param maxOccurrences only variables with at most this count of
+	 * positive and negative occurrences are eliminated
+	 * @param maxResolventLength only variables whose resolvents have at most
+	 * this length are eliminated
+	 */
+	public void setEliminationLimits(int maxOccurrences, int maxResolventLength) {
+		this.maxOccurrences = maxOccurrences;
+		this.maxResolventLength = maxResolventLength;
+	}
+
+	/**
+	 * Simplifies the formular.
+	 * @param knf the knf formular, it is not changed
+	 * @return the simplified formular, it contains the empty clause if the
+	 * input is unfullfillable
+	 */
+	public synchronized KNF preprocess(KNF knf) {
+		load(knf);
+		Arrays.fill(times, 0);
+		Arrays.fill(removedClauses, 0);
+		Arrays.fill(removedVariables, 0);
+		propagate();
+		boolean changed = true;
+		for (int round=0; changed && round<MAX_ROUNDS && !unsatisfiable; round++) {
+			int clausesBefore = liveClauses;
+			int variablesBefore = removedCount;
+			for (Pass pass : Pass.values()) {
+				if (enabled[pass.ordinal()] && !unsatisfiable) {
+					run(pass);
+				}
+			}
+			changed = clausesBefore != liveClauses || variablesBefore != removedCount;
+		}
+
+		KNF result = new KNF();
+		if (unsatisfiable) {
+			result.addClause(new KNF.Clause());
+			return result;
+		}
+		for (int j=0; j<clauseCount; j++) {
+			if (clauses[j] != null) {
+				KNF.Clause c = new KNF.Clause();
+				for (int l : clauses[j]) {
+					c.addLiteral(variables.decode(l));
+				}
+				result.addClause(c);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Extends an allocation of the simplified formular to an allocation of
+	 * all variables of the input formular.
+	 * @param allocation a fullfilling allocation of the result of
+	 * {@link #preprocess(org.shaman.ds.KNF) }
+	 * @return the fullfilling allocation of the input formular, variables
+	 * without a value are set to false
+	 */
+	public synchronized Set<KNF.Literal> extend(Set<KNF.Literal> allocation) {
+		int[] value = new int[variableCount + 1];
+		for (KNF.Literal l : allocation) {
+			int code = variables.lookup(l);
+			if (code != 0) {
+				value[ClauseDatabase.variable(code)] = code > 0 ? 1 : -1;
+			}
+		}
+		for (int v=1; v<=variableCount; v++) {
+			if (values[v] != 0) {
+				value[v] = values[v];
+			} else if (value[v] == 0) {
+				value[v] = -1;
+			}
+		}
+		for (int i=reconstruction.size()-1; i>=0; i--) {
+			int[] entry = reconstruction.get(i);
+			boolean satisfied = false;
+			for (int j=1; j<entry.length && !satisfied; j++) {
+				satisfied = value[Math.abs(entry[j])] == Integer.signum(entry[j]);
+			}
+			if (!satisfied) {
+				value[Math.abs(entry[0])] = Integer.signum(entry[0]);
+			}
+		}
+		Set<KNF.Literal> result = new LinkedHashSet<>();
+		for (int v=1; v<=variableCount; v++) {
+			result.add(variables.decode(value[v] * v));
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@code true} if the last preprocessing found that the formular
+	 * is unfullfillable
+	 */
+	public boolean isUnsatisfiable() {
+		return unsatisfiable;
+	}
+
+	/**
+	 * @param pass the pass
+	 * @return the count of clauses the pass removed in the last preprocessing
+	 */
+	public int getRemovedClauses(Pass pass) {
+		return removedClauses[pass.ordinal()];
+	}
+
+	/**
+	 * @param pass the pass
+	 * @return the count of variables the pass set, eliminated or replaced in
+	 * the last preprocessing
+	 */
+	public int getRemovedVariables(Pass pass) {
+		return removedVariables[pass.ordinal()];
+	}
+
+	/**
+	 * @param pass the pass
+	 * @return the time of the pass in the last preprocessing in milliseconds
+	 */
+	public long getTime(Pass pass) {
+		return times[pass.ordinal()] / 1000000;
+	}
+
+	/**
+	 * Prints the statistics of each pass.
+	 * @param out the output
+	 */
+	public void printStatistics(Output out) {
+		for (Pass pass : Pass.values()) {
+			if (enabled[pass.ordinal()]) {
+				out.println(pass+": Klauseln -"+getRemovedClauses(pass)
+						+", Variablen -"+getRemovedVariables(pass)+", "+getTime(pass)+" ms");
+			}
+		}
+	}
+
+	private void run(Pass pass) {
+		long start = System.nanoTime();
+		int clausesBefore = liveClauses;
+		int variablesBefore = removedCount;
+		switch (pass) {
+			case PURE_LITERALS: pureLiterals(); break;
+			case SUBSUMPTION: subsumption(); break;
+			case EQUIVALENT_LITERALS: equivalentLiterals(); break;
+			case FAILED_LITERALS: failedLiterals(); break;
+			case VARIABLE_ELIMINATION: variableElimination(); break;
+		}
+		propagate();
+		times[pass.ordinal()] += System.nanoTime() - start;
+		removedClauses[pass.ordinal()] += clausesBefore - liveClauses;
+		removedVariables[pass.ordinal()] += removedCount - variablesBefore;
+	}
+
+	private void load(KNF knf) {
+		ClauseDatabase db = knf.getDatabase();
+		variables = knf.getVariables();
+		variableCount = variables.size();
+		clauses = new int[Math.max(16, db.size())][];
+		clauseCount = 0;
+		liveClauses = 0;
+		occurrences = new int[2 * variableCount + 2][];
+		occurrenceCounts = new int[2 * variableCount + 2];
+		values = new int[variableCount + 1];
+		removed = new boolean[variableCount + 1];
+		removedCount = 0;
+		units = new int[variableCount + 1];
+		unitCount = 0;
+		unitHead = 0;
+		unsatisfiable = false;
+		reconstruction.clear();
+		marks = new int[2 * variableCount + 2];
+		stamp = 0;
+		for (int c=0; c<db.size(); c++) {
+			int[] clause = new int[db.length(c)];
+			for (int i=0; i<clause.length; i++) {
+				clause[i] = db.literal(c, i);
+			}
+			addClause(clause);
+		}
+	}
+
+	// ---- clause store ----
+
+	/**
+	 * Adds a clause without the false literals, duplicates and tautologies.
+	 */
+	private void addClause(int[] literals) {
+		stamp++;
+		int[] c = new int[literals.length];
+		int n = 0;
+		for (int l : literals) {
+			int value = values[Math.abs(l)];
+			if (value == Integer.signum(l) || marks[ClauseDatabase.index(-l)] == stamp) {
+				return; //satisfied or tautology
+			}
+			if (value == 0 && marks[ClauseDatabase.index(l)] != stamp) {
+				marks[ClauseDatabase.index(l)] = stamp;
+				c[n++] = l;
+			}
+		}
+		if (n == 0) {
+			unsatisfiable = true;
+			return;
+		}
+		c = Arrays.copyOf(c, n);
+		if (clauseCount == clauses.length) {
+			clauses = Arrays.copyOf(clauses, clauseCount * 2);
+		}
+		int j = clauseCount++;
+		clauses[j] = c;
+		liveClauses++;
+		for (int l : c) {
+			int i = ClauseDatabase.index(l);
+			if (occurrences[i] == null) {
+				occurrences[i] = new int[4];
+			} else if (occurrenceCounts[i] == occurrences[i].length) {
+				occurrences[i] = Arrays.copyOf(occurrences[i], occurrenceCounts[i] * 2);
+			}
+			occurrences[i][occurrenceCounts[i]++] = j;
+		}
+		if (n == 1) {
+			assign(c[0]);
+		}
+	}
+
+	private void removeClause(int j) {
+		clauses[j] = null;
+		liveClauses--;
+	}
+
+	/**
+	 * Removes the literal from the clause.
+	 */
+	private void strengthen(int j, int literal) {
+		int[] c = clauses[j];
+		int[] s = new int[c.length - 1];
+		int n = 0;
+		for (int l : c) {
+			if (l != literal) {
+				s[n++] = l;
+			}
+		}
+		clauses[j] = s;
+		if (s.length == 0) {
+			unsatisfiable = true;
+		} else if (s.length == 1) {
+			assign(s[0]);
+		}
+	}
+
+	private static boolean contains(int[] clause, int literal) {
+		for (int l : clause) {
+			if (l == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the clauses that contain the literal, the list of the literal
+	 * is cleaned up
+	 */
+	private int[] collect(int literal) {
+		int i = ClauseDatabase.index(literal);
+		int n = 0;
+		for (int k=0; k<occurrenceCounts[i]; k++) {
+			int j = occurrences[i][k];
+			if (clauses[j] != null && contains(clauses[j], literal)) {
+				occurrences[i][n++] = j;
+			}
+		}
+		occurrenceCounts[i] = n;
+		return n == 0 ? new int[0] : Arrays.copyOf(occurrences[i], n);
+	}
+
+	private void assign(int literal) {
+		int v = Math.abs(literal);
+		if (values[v] == -Integer.signum(literal)) {
+			unsatisfiable = true;
+		} else if (values[v] == 0) {
+			values[v] = Integer.signum(literal);
+			removedCount++;
+			units[unitCount++] = literal;
+		}
+	}
+
+	/**
+	 * Unit propagation on the formular: the clauses with an assigned literal
+	 * are removed, the negated literals are removed from the clauses.
+	 */
+	private void propagate() {
+		while (unitHead < unitCount && !unsatisfiable) {
+			int l = units[unitHead++];
+			for (int j : collect(l)) {
+				removeClause(j);
+			}
+			for (int j : collect(-l)) {
+				if (clauses[j] != null && !unsatisfiable) {
+					strengthen(j, -l);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the variable with its clauses, they are remembered for the
+	 * reconstruction.
+	 */
+	private void eliminate(int variable, int[] positive, int[] negative) {
+		for (int j : positive) {
+			remember(variable, clauses[j]);
+			removeClause(j);
+		}
+		for (int j : negative) {
+			remember(-variable, clauses[j]);
+			removeClause(j);
+		}
+		removed[variable] = true;
+		removedCount++;
+	}
+
+	private void remember(int witness, int[] clause) {
+		int[] entry = new int[clause.length + 1];
+		entry[0] = witness;
+		System.arraycopy(clause, 0, entry, 1, clause.length);
+		reconstruction.add(entry);
+	}
+
+	private boolean isOpen(int variable) {
+		return values[variable] == 0 && !removed[variable];
+	}
+
+	// ---- passes ----
+
+	private void pureLiterals() {
+		for (int v=1; v<=variableCount; v++) {
+			if (!isOpen(v)) {
+				continue;
+			}
+			int[] positive = collect(v);
+			int[] negative = collect(-v);
+			if (positive.length + negative.length > 0 && (positive.length == 0 || negative.length == 0)) {
+				eliminate(v, positive, negative);
+			}
+		}
+	}
+
+	private void subsumption() {
+		//short clauses first, they subsume more
+		long[] order = new long[liveClauses];
+		int n = 0;
+		for (int j=0; j<clauseCount; j++) {
+			if (clauses[j] != null) {
+				order[n++] = ((long) clauses[j].length << 32) | j;
+			}
+		}
+		Arrays.sort(order, 0, n);
+		for (int k=0; k<n && !unsatisfiable; k++) {
+			int j = (int) order[k];
+			int[] c = clauses[j];
+			if (c == null) {
+				continue;
+			}
+			//the supersets contain the literal with the fewest occurrences
+			int best = c[0];
+			for (int l : c) {
+				if (occurrenceCounts[ClauseDatabase.index(l)] < occurrenceCounts[ClauseDatabase.index(best)]) {
+					best = l;
+				}
+			}
+			for (int d : collect(best)) {
+				if (d != j && clauses[d].length >= c.length && isSubset(c, 0, clauses[d])) {
+					removeClause(d);
+				}
+			}
+			//self-subsuming resolution: c \ {l} + {-l} is a subset of d
+			for (int l : c) {
+				for (int d : collect(-l)) {
+					if (d != j && clauses[d] != null && clauses[d].length >= c.length
+							&& isSubset(c, l, clauses[d]) && !unsatisfiable) {
+						strengthen(d, -l);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param except a literal of {@code c} that is ignored or 0
+	 * @return {@code true} if all literals of {@code c} are in {@code d}
+	 */
+	private boolean isSubset(int[] c, int except, int[] d) {
+		stamp++;
+		for (int l : d) {
+			marks[ClauseDatabase.index(l)] = stamp;
+		}
+		for (int l : c) {
+			if (l != except && marks[ClauseDatabase.index(l)] != stamp) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void equivalentLiterals() {
+		int nodes = 2 * variableCount + 2;
+		//implication graph of the binary clauses as adjacency arrays
+		int[] degree = new int[nodes + 1];
+		for (int j=0; j<clauseCount; j++) {
+			if (clauses[j] != null && clauses[j].length == 2) {
+				degree[ClauseDatabase.index(-clauses[j][0])]++;
+				degree[ClauseDatabase.index(-clauses[j][1])]++;
+			}
+		}
+		int[] offsets = new int[nodes + 1];
+		for (int i=0; i<nodes; i++) {
+			offsets[i + 1] = offsets[i] + degree[i];
+		}
+		int[] targets = new int[offsets[nodes]];
+		int[] fill = Arrays.copyOf(offsets, nodes);
+		for (int j=0; j<clauseCount; j++) {
+			if (clauses[j] != null && clauses[j].length == 2) {
+				int a = clauses[j][0];
+				int b = clauses[j][1];
+				targets[fill[ClauseDatabase.index(-a)]++] = b;
+				targets[fill[ClauseDatabase.index(-b)]++] = a;
+			}
+		}
+		int[] component = stronglyConnectedComponents(nodes, offsets, targets);
+
+		//the representative of a component is the literal with the smallest variable
+		int[] representative = new int[nodes];
+		for (int v=variableCount; v>=1; v--) {
+			if (isOpen(v)) {
+				representative[component[ClauseDatabase.index(v)]] = v;
+				representative[component[ClauseDatabase.index(-v)]] = -v;
+			}
+		}
+		int[] replacement = new int[variableCount + 1];
+		boolean any = false;
+		for (int v=1; v<=variableCount; v++) {
+			if (!isOpen(v)) {
+				continue;
+			}
+			if (component[ClauseDatabase.index(v)] == component[ClauseDatabase.index(-v)]) {
+				unsatisfiable = true; //v is equivalent to -v
+				return;
+			}
+			int r = representative[component[ClauseDatabase.index(v)]];
+			if (r != v) {
+				replacement[v] = r;
+				any = true;
+			}
+		}
+		if (!any) {
+			return;
+		}
+		int count = clauseCount;
+		for (int j=0; j<count && !unsatisfiable; j++) {
+			int[] c = clauses[j];
+			if (c == null) {
+				continue;
+			}
+			boolean changed = false;
+			int[] mapped = new int[c.length];
+			for (int i=0; i<c.length; i++) {
+				int r = replacement[Math.abs(c[i])];
+				mapped[i] = r == 0 ? c[i] : (c[i] > 0 ? r : -r);
+				changed |= r != 0;
+			}
+			if (changed) {
+				removeClause(j);
+				addClause(mapped);
+			}
+		}
+		for (int v=1; v<=variableCount; v++) {
+			if (replacement[v] != 0) {
+				//v is true if and only if its replacement is true
+				remember(v, new int[] {v, -replacement[v]});
+				remember(-v, new int[] {-v, replacement[v]});
+				removed[v] = true;
+				removedCount++;
+			}
+		}
+	}
+
+	/**
+	 * Tarjan's algorithm without recursion.
+	 * @return the component of each node
+	 */
+	private int[] stronglyConnectedComponents(int nodes, int[] offsets, int[] targets) {
+		int[] index = new int[nodes];
+		int[] low = new int[nodes];
+		int[] component = new int[nodes];
+		Arrays.fill(index, -1);
+		boolean[] onStack = new boolean[nodes];
+		int[] stack = new int[nodes];
+		int stackSize = 0;
+		int[] callStack = new int[nodes];
+		int[] edge = new int[nodes];
+		int counter = 0;
+		int components = 0;
+		for (int root=2; root<nodes; root++) {
+			if (index[root] >= 0) {
+				continue;
+			}
+			int depth = 0;
+			callStack[0] = root;
+			edge[0] = offsets[root];
+			index[root] = low[root] = counter++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (depth >= 0) {
+				int node = callStack[depth];
+				if (edge[depth] < offsets[node + 1]) {
+					int next = ClauseDatabase.index(targets[edge[depth]++]);
+					if (index[next] < 0) {
+						index[next] = low[next] = counter++;
+						stack[stackSize++] = next;
+						onStack[next] = true;
+						depth++;
+						callStack[depth] = next;
+						edge[depth] = offsets[next];
+					} else if (onStack[next]) {
+						low[node] = Math.min(low[node], index[next]);
+					}
+				} else {
+					if (low[node] == index[node]) {
+						int w;
+						do {
+							w = stack[--stackSize];
+							onStack[w] = false;
+							component[w] = components;
+						} while (w != node);
+						components++;
+					}
+					depth--;
+					if (depth >= 0) {
+						int parent = callStack[depth];
+						low[parent] = Math.min(low[parent], low[node]);
+					}
+				}
+			}
+		}
+		return component;
+	}
+
+	private void failedLiterals() {
+		int[] probe = new int[variableCount + 1];
+		int[] trail = new int[variableCount];
+		for (int v=1; v<=variableCount && !unsatisfiable; v++) {
+			if (!isOpen(v) || occurrenceCounts[ClauseDatabase.index(v)] + occurrenceCounts[ClauseDatabase.index(-v)] == 0) {
+				continue;
+			}
+			for (int l : new int[] {v, -v}) {
+				if (values[v] == 0 && !probe(l, probe, trail)) {
+					assign(-l);
+					propagate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unit propagation of the literal on a temporary allocation.
+	 * @return {@code false} on a conflict
+	 */
+	private boolean probe(int literal, int[] probe, int[] trail) {
+		int size = 0;
+		int head = 0;
+		probe[Math.abs(literal)] = Integer.signum(literal);
+		trail[size++] = literal;
+		boolean conflict = false;
+		while (head < size && !conflict) {
+			int a = trail[head++];
+			for (int j : collect(-a)) {
+				int open = 0;
+				int last = 0;
+				boolean satisfied = false;
+				for (int l : clauses[j]) {
+					int value = probe[Math.abs(l)];
+					if (value == Integer.signum(l)) {
+						satisfied = true;
+						break;
+					} else if (value == 0) {
+						open++;
+						last = l;
+					}
+				}
+				if (satisfied || open > 1) {
+					continue;
+				} else if (open == 0) {
+					conflict = true;
+					break;
+				}
+				probe[Math.abs(last)] = Integer.signum(last);
+				trail[size++] = last;
+			}
+		}
+		for (int i=0; i<size; i++) {
+			probe[Math.abs(trail[i])] = 0;
+		}
+		return !conflict;
+	}
+
+	private void variableElimination() {
+		List<int[]> resolvents = new ArrayList<>();
+		for (int v=1; v<=variableCount && !unsatisfiable; v++) {
+			if (!isOpen(v)) {
+				continue;
+			}
+			int[] positive = collect(v);
+			int[] negative = collect(-v);
+			if (positive.length + negative.length == 0
+					|| positive.length > maxOccurrences || negative.length > maxOccurrences) {
+				continue;
+			}
+			resolvents.clear();
+			boolean bounded = true;
+			for (int p=0; p<positive.length && bounded; p++) {
+				for (int q=0; q<negative.length && bounded; q++) {
+					int[] r = resolve(clauses[positive[p]], clauses[negative[q]], v);
+					if (r != null) {
+						resolvents.add(r);
+						bounded = r.length <= maxResolventLength
+								&& resolvents.size() <= positive.length + negative.length;
+					}
+				}
+			}
+			if (!bounded) {
+				continue;
+			}
+			eliminate(v, positive, negative);
+			for (int[] r : resolvents) {
+				addClause(r);
+			}
+			propagate();
+		}
+	}
+
+	/**
+	 * @return the resolvent on the variable or {@code null} for a tautology
+	 */
+	private int[] resolve(int[] positive, int[] negative, int variable) {
+		stamp++;
+		int[] r = new int[positive.length + negative.length - 2];
+		int n = 0;
+		for (int l : positive) {
+			if (l != variable) {
+				marks[ClauseDatabase.index(l)] = stamp;
+				r[n++] = l;
+			}
+		}
+		for (int l : negative) {
+			if (l == -variable) {
+				continue;
+			}
+			if (marks[ClauseDatabase.index(-l)] == stamp) {
+				return null;
+			}
+			if (marks[ClauseDatabase.index(l)] != stamp) {
+				r[n++] = l;
+			}
+		}
+		return Arrays.copyOf(r, n);
+	}
+}
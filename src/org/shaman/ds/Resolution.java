@@ -7,8 +7,6 @@
 package org.shaman.ds;
 
 import java.io.PrintStream;
-import java.util.Deque;
-import java.util.LinkedList;
 
 /**
  *
@@ -18,132 +16,104 @@ public class Resolution {
 	
 	/**
 	 * Executes the resolution algorithm on the KNF-formular.
+	 * The resolvents are kept in a {@link ResolutionEngine}, the formular is
+	 * not changed.
 	 * @param knf the knf forumal
 	 * @param debug a debug stream or {@null}
 	 * @return true, if the formular is unfullfillable
 	 */
 	public static boolean doResolution(KNF knf, Output debug) {
-		//check if knf already contains an empty clause
-		for (KNF.Clause c : knf) {
-			if (c.getCount()==0) {
-				return true;
-			}
-		}
-		//do resolution
-		while(true) {
-			//create clause
-			ResolutionClause c = newClause(knf);
-			if (c==null) {
-				if (debug!=null) {
-					debug.println("Es können keine neuen Resolventen erzeugt werden.");
-					debug.println("Gesammtanzahl der Klauseln: "+knf.getCount());
-				}
-				return false;
-			} else if (c.getCount()==0) {
-				if (debug!=null) {
-					debug.println(c.print());
-					debug.println("Leere Klausel gefunden!\n");
-					debug.println("Gesamtanzahl der Klauseln: "+knf.getCount());
-					printResults(c, debug);
-				}
-				return true;
-			} else {
-				if (debug!=null) {
-					debug.println(c.print());
-				}
-				knf.addClause(c);
-				continue;
-			}
-		}
+		return doResolution(knf, debug, null);
 	}
-	
-	private static ResolutionClause newClause(KNF knf) {
-		//iterate through all clauses and literals
-		for (KNF.Clause c : knf) {
-			for (KNF.Literal l1 : c) {
-				//search for a negation of this literal
-				KNF.Literal l2 = new KNF.Literal(l1.getVariable(), !l1.isNegated());
-				for (KNF.Clause c2 : knf) {
-					if (c!=c2) {
-						if (c2.hasLiteral(l2)) {
-							//we have found our resolution pair, create it
-							ResolutionClause res = new ResolutionClause(c, c2, l1, l2);
-							//check for equals true
-							if (checkIfTrue(res)) {
-								continue; //equals true
-							}
-							//check, if it not already in the knf
-							if (!knf.containsClause(res)) {
-								return res;
-							}
-						}
-					}
-				}
-			}
-		}
-		return null; //no clause created
-	}
-	
-	//checks, if this clause is equals to true (contains e.g. -r and r), then it returns true
-	private static boolean checkIfTrue(KNF.Clause clause) {
-		for (KNF.Literal l : clause) {
-			KNF.Literal l2 = new KNF.Literal(l.getVariable(), !l.isNegated());
-			if (clause.hasLiteral(l2)) {
-				return true;
-			}
-		}
-		return false;
+
+	/**
+	 * Executes the resolution algorithm on the KNF-formular and adds the
+	 * counters and timings to the statistics.
+	 * @param knf the knf forumal
+	 * @param debug a debug stream or {@null}
+	 * @param statistics the statistics or {@code null}
+	 * @return true, if the formular is unfullfillable
+	 */
+	public static boolean doResolution(KNF knf, Output debug, SolverStatistics statistics) {
+		return resolve(knf, debug, statistics, null) == SolverResult.Status.UNSATISFIABLE;
 	}
-	
-	private static void printResults(ResolutionClause emptyClause, Output out) {
-		Deque<String> str = new LinkedList<>();
-		printResults(emptyClause, str);
-		while(!str.isEmpty()) {
-			String s = str.removeFirst();
-			out.println(s);
-		}
+
+	/**
+	 * Executes the resolution algorithm until the empty clause is found, no
+	 * new resolvent can be created or the token is cancelled.
+	 * @param knf the knf forumal
+	 * @param debug a debug stream or {@code null}
+	 * @param cancellation the token or {@code null}
+	 * @return {@link SolverResult.Status#UNSATISFIABLE} if the empty clause
+	 * was found, {@link SolverResult.Status#SATISFIABLE} (without allocation)
+	 * if the formular is saturated, {@link SolverResult.Status#UNKNOWN} if it
+	 * was cancelled, with the statistics of this call
+	 */
+	public static SolverResult solve(KNF knf, Output debug, CancellationToken cancellation) {
+		return solve(knf, debug, cancellation, null);
 	}
-	private static void printResults(ResolutionClause clause, Deque<String> str) {
-		str.addFirst(clause.print());
-		
-		if (clause.getParent1() instanceof ResolutionClause) {
-			printResults((ResolutionClause) clause.getParent1(), str);
+
+	/**
+	 * Like {@link #solve(org.shaman.ds.KNF, org.shaman.ds.Output, org.shaman.ds.CancellationToken) },
+	 * but looks the formular up in the cache first. Only unfullfillable
+	 * formulars are stored, because resolution finds no allocation for the
+	 * others.
+	 * @param knf the knf forumal
+	 * @param debug a debug stream or {@code null}, it receives nothing for a
+	 * cached result
+	 * @param cancellation the token or {@code null}
+	 * @param cache the cache or {@code null}
+	 * @return the result, a cached result has empty statistics and contains
+	 * the cached allocation
+	 */
+	public static SolverResult solve(KNF knf, Output debug, CancellationToken cancellation, SolutionCache cache) {
+		SolutionCache.Fingerprint key = null;
+		if (cache != null) {
+			key = SolutionCache.fingerprint(knf);
+			SolutionCache.Result cached = cache.get(key);
+			if (cached != null) {
+				return cached.toSolverResult();
+			}
 		}
-		if (clause.getParent2() instanceof ResolutionClause) {
-			printResults((ResolutionClause) clause.getParent2(), str);
+		SolverStatistics call = new SolverStatistics();
+		SolverResult.Status status = resolve(knf, debug, call, cancellation);
+		if (cache != null && status == SolverResult.Status.UNSATISFIABLE) {
+			cache.put(key, new SolutionCache.Result(false, null));
 		}
+		return new SolverResult(status, null, call);
 	}
-	
-	private static class ResolutionClause extends KNF.Clause {
-		private final KNF.Clause parent1, parent2;
-		
-		private ResolutionClause(KNF.Clause p1, KNF.Clause p2, KNF.Literal l1, KNF.Literal l2) {
-			this.parent1 = p1;
-			this.parent2 = p2;
-			//merge clauses
-			for (KNF.Literal lit : p1) {
-				if (!lit.equals(l1)) {
-					addLiteral(lit);
-				}
-			}
-			for (KNF.Literal lit : p2) {
-				if (!lit.equals(l2)) {
-					addLiteral(lit);
-				}
-			}
-		}
 
-		public KNF.Clause getParent1() {
-			return parent1;
+	private static SolverResult.Status resolve(KNF knf, Output debug, SolverStatistics statistics,
+			CancellationToken cancellation) {
+		//check if knf already contains an empty clause
+		for (KNF.Clause c : knf) {
+			if (c.getCount()==0) {
+				return SolverResult.Status.UNSATISFIABLE;
+			}
 		}
-
-		public KNF.Clause getParent2() {
-			return parent2;
+		//do resolution
+		ResolutionEngine engine = new ResolutionEngine(knf);
+		engine.setStatistics(statistics);
+		engine.setCancellationToken(cancellation);
+		boolean ret = engine.saturate(debug);
+		if (debug!=null) {
+			if (ret) {
+				debug.println("Leere Klausel gefunden!\n");
+				debug.println("Gesamtanzahl der Klauseln: "+engine.getClauseCount());
+				debug.println("Durch Subsumtion verworfen: "+engine.getSubsumedCount()+", gelöscht: "+engine.getDeletedCount());
+				engine.printDerivation(debug);
+			} else if (engine.isCancelled()) {
+				debug.println("Abgebrochen nach "+engine.getClauseCount()+" Klauseln.");
+			} else {
+				debug.println("Es können keine neuen Resolventen erzeugt werden.");
+				debug.println("Gesammtanzahl der Klauseln: "+engine.getClauseCount());
+				debug.println("Durch Subsumtion verworfen: "+engine.getSubsumedCount()+", gelöscht: "+engine.getDeletedCount());
+			}
 		}
-		
-		private String print() {
-			return parent1 + " + " + parent2 + " --> " + this;
+		if (ret) {
+			return SolverResult.Status.UNSATISFIABLE;
 		}
+		return engine.isCancelled() ? SolverResult.Status.UNKNOWN : SolverResult.Status.SATISFIABLE;
 	}
 
 	/**
@@ -0,0 +1,481 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+/**
+ * Saturates the int-encoded clauses of a formular with resolution. <br>
+ * The clauses are split into the active clauses, which are already resolved
+ * with each other, and the passive clauses. In each step the shortest passive
+ * clause (the given clause) is resolved with all active clauses that contain
+ * the negation of one of its literals and then becomes active itself.
+ * The active clauses are found over an occurrence list per literal, so each
+ * pair of clauses is resolved exactly once. New resolvents become passive.
+ * <br>
+ * A new clause is dropped if a kept clause is a subset of it (forward
+ * subsumption), otherwise it deletes all kept clauses that are supersets of
+ * it (backward subsumption). Each clause has a 64 bit signature with one bit
+ * per literal, so most pairs are rejected without comparing the literals.
+ * <br>
+ * The formular itself is not changed, the resolvents are stored in an own
+ * {@link ClauseDatabase} that rejects duplicates.
+ * @author Sebastian Weiß
+ */
+public class ResolutionEngine {
+	private final VariableTable variables;
+	private final ClauseDatabase clauses;
+	private final int inputCount;
+	//the two clauses each resolvent was created from, -1 for input clauses
+	private int[] parent1;
+	private int[] parent2;
+	private long[] signatures;
+	private boolean[] deleted;
+	//the active clauses per literal index
+	private final int[][] occurrences;
+	private final int[] occurrenceCounts;
+	//all kept clauses per literal index, may contain deleted clauses
+	private final int[][] allOccurrences;
+	private final int[] allOccurrenceCounts;
+	//length << 32 | clause, so the shortest and oldest clause comes first
+	private final PriorityQueue<Long> passive;
+	private final int[] marks;
+	private int stamp;
+	private int[] buffer;
+	private int emptyClause = -1;
+	private long pairs;
+	private int subsumed;
+	private int deletedCount;
+	//own counters, the differences are added to the attached statistics
+	private final SolverStatistics counters = new SolverStatistics();
+	private final SolverStatistics published = new SolverStatistics();
+	private SolverStatistics statistics;
+	private Trace trace;
+	private boolean traceFine;
+	private CancellationToken cancellation;
+	//the last call was stopped by the token
+	private boolean cancelled;
+
+	/**
+	 * @param knf the knf formular, it is not changed
+	 */
+	public ResolutionEngine(KNF knf) {
+		long time = System.nanoTime();
+		this.variables = knf.getVariables();
+		ClauseDatabase db = knf.getDatabase();
+		int size = 2 * db.getMaxVariable() + 2;
+		this.clauses = new ClauseDatabase();
+		this.occurrences = new int[size][];
+		this.occurrenceCounts = new int[size];
+		this.allOccurrences = new int[size][];
+		this.allOccurrenceCounts = new int[size];
+		this.marks = new int[size];
+		this.buffer = new int[16];
+		this.passive = new PriorityQueue<>();
+		this.parent1 = new int[Math.max(16, db.size())];
+		this.parent2 = new int[parent1.length];
+		this.signatures = new long[parent1.length];
+		this.deleted = new boolean[parent1.length];
+		for (int c=0; c<db.size(); c++) {
+			int start = db.start(c);
+			int length = db.length(c);
+			if (!isTautology(db.getArena(), start, length)) {
+				add(db.getArena(), start, length, -1, -1);
+			}
+		}
+		this.inputCount = clauses.size();
+		counters.setupTime = System.nanoTime() - time;
+	}
+
+	/**
+	 * Resolves until the empty clause is found or no new resolvent can be
+	 * created.
+	 * @param debug a debug stream or {@code null}, it receives every new
+	 * resolvent with its two parents
+	 * @return {@code true} if the empty clause was found, so the formular is
+	 * unfullfillable; {@code false} if no new resolvent can be created or the
+	 * cancellation token stopped it, see {@link #isCancelled() }
+	 */
+	public boolean saturate(Output debug) {
+		long start = System.nanoTime();
+		cancelled = false;
+		try {
+			return saturateLoop(debug);
+		} finally {
+			counters.searchTime += System.nanoTime() - start;
+			counters.calls++;
+			publish();
+		}
+	}
+
+	private boolean saturateLoop(Output debug) {
+		while (emptyClause < 0 && !passive.isEmpty()) {
+			//only between two given clauses, so a later call can continue
+			if (cancellation != null && cancellation.isCancelled()) {
+				cancelled = true;
+				return false;
+			}
+			int given = (int) passive.poll().longValue();
+			if (deleted[given]) {
+				continue;
+			}
+			int length = clauses.length(given);
+			//stop when a resolvent subsumes the given clause
+			for (int i=0; i<length && emptyClause<0 && !deleted[given]; i++) {
+				int l = clauses.literal(given, i);
+				int n = ClauseDatabase.index(-l);
+				for (int j=0; j<occurrenceCounts[n] && emptyClause<0 && !deleted[given]; j++) {
+					if (!deleted[occurrences[n][j]]) {
+						resolve(given, occurrences[n][j], l, debug);
+					}
+				}
+			}
+			if (!deleted[given]) {
+				for (int i=0; i<length; i++) {
+					addOccurrence(occurrences, occurrenceCounts, clauses.literal(given, i), given);
+				}
+			}
+		}
+		return emptyClause >= 0;
+	}
+
+	/**
+	 * Attaches statistics, {@link #saturate(org.shaman.ds.Output) } adds its
+	 * counters and timings to them.
+	 * @param statistics the statistics or {@code null}
+	 */
+	public void setStatistics(SolverStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the attached statistics or {@code null}
+	 */
+	public SolverStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Attaches a trace that receives every new resolvent with its parents.
+	 * @param trace the trace or {@code null}
+	 */
+	public void setTrace(Trace trace) {
+		this.trace = trace;
+		this.traceFine = trace != null && trace.isEnabled(Trace.Type.RESOLVENT.getLevel());
+	}
+
+	/**
+	 * @return the attached trace or {@code null}
+	 */
+	public Trace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Sets the token that stops {@link #saturate(org.shaman.ds.Output) }
+	 * before the next given clause. The resolvents found so far are kept, a
+	 * later call with a new token continues.
+	 * @param cancellation the token or {@code null}
+	 */
+	public void setCancellationToken(CancellationToken cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * @return the cancellation token or {@code null}
+	 */
+	public CancellationToken getCancellationToken() {
+		return cancellation;
+	}
+
+	/**
+	 * @return {@code true} if the last call of
+	 * {@link #saturate(org.shaman.ds.Output) } was stopped by the token
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void publish() {
+		counters.resolvents = getResolventCount();
+		counters.rejectedResolvents = pairs - getResolventCount();
+		if (statistics != null) {
+			statistics.add(counters, published);
+		}
+	}
+
+	/**
+	 * @return the count of all clauses: the input clauses and the resolvents
+	 */
+	public int getClauseCount() {
+		return clauses.size();
+	}
+
+	/**
+	 * @return the count of created resolvents
+	 */
+	public int getResolventCount() {
+		return clauses.size() - inputCount;
+	}
+
+	/**
+	 * @return the count of clauses that are not deleted by subsumption
+	 */
+	public int getKeptCount() {
+		return clauses.size() - deletedCount;
+	}
+
+	/**
+	 * @return the count of new clauses that were dropped because a kept
+	 * clause subsumes them
+	 */
+	public int getSubsumedCount() {
+		return subsumed;
+	}
+
+	/**
+	 * @return the count of kept clauses that were deleted because a new
+	 * clause subsumes them
+	 */
+	public int getDeletedCount() {
+		return deletedCount;
+	}
+
+	/**
+	 * @return the count of resolved pairs of clauses
+	 */
+	public long getPairCount() {
+		return pairs;
+	}
+
+	/**
+	 * Prints the resolvents that lead to the empty clause, the parents before
+	 * their resolvent.
+	 * @param out the output
+	 */
+	public void printDerivation(Output out) {
+		if (emptyClause < 0) {
+			return;
+		}
+		Deque<String> str = new LinkedList<>();
+		printDerivation(emptyClause, str);
+		while (!str.isEmpty()) {
+			out.println(str.removeFirst());
+		}
+	}
+
+	private void printDerivation(int clause, Deque<String> str) {
+		str.addFirst(print(clause));
+		if (parent1[clause] >= inputCount) {
+			printDerivation(parent1[clause], str);
+		}
+		if (parent2[clause] >= inputCount) {
+			printDerivation(parent2[clause], str);
+		}
+	}
+
+	private String print(int clause) {
+		return toClause(parent1[clause]) + " + " + toClause(parent2[clause]) + " --> " + toClause(clause);
+	}
+
+	/**
+	 * @param clause the index of a clause
+	 * @return a free clause with the decoded literals
+	 */
+	public KNF.Clause toClause(int clause) {
+		KNF.Clause c = new KNF.Clause();
+		for (int i=0; i<clauses.length(clause); i++) {
+			c.addLiteral(variables.decode(clauses.literal(clause, i)));
+		}
+		return c;
+	}
+
+	/**
+	 * Resolves the given clause with an active clause.
+	 * @param literal the literal of the given clause, the active clause
+	 * contains its negation
+	 */
+	private void resolve(int given, int active, int literal, Output debug) {
+		pairs++;
+		int[] arena = clauses.getArena();
+		int length1 = clauses.length(given);
+		int length2 = clauses.length(active);
+		if (buffer.length < length1 + length2) {
+			buffer = new int[length1 + length2];
+		}
+		stamp++;
+		int n = 0;
+		for (int i=0, p=clauses.start(given); i<length1; i++) {
+			int l = arena[p + i];
+			if (l != literal) {
+				marks[ClauseDatabase.index(l)] = stamp;
+				buffer[n++] = l;
+			}
+		}
+		for (int i=0, p=clauses.start(active); i<length2; i++) {
+			int l = arena[p + i];
+			if (l == -literal) {
+				continue;
+			}
+			if (marks[ClauseDatabase.index(-l)] == stamp) {
+				return; //tautology
+			}
+			if (marks[ClauseDatabase.index(l)] != stamp) {
+				marks[ClauseDatabase.index(l)] = stamp;
+				buffer[n++] = l;
+			}
+		}
+		if (add(buffer, 0, n, given, active)) {
+			int c = clauses.size() - 1;
+			if (n == 0) {
+				emptyClause = c;
+			}
+			if (debug != null) {
+				debug.println(print(c));
+			}
+			if (traceFine) {
+				final int resolvent = c;
+				trace.event(new TraceEvent(Trace.Type.RESOLVENT, 0, variables.decode(literal), given, active, new Object() {
+					@Override
+					public String toString() {
+						return print(resolvent);
+					}
+				}));
+			}
+		}
+	}
+
+	private boolean add(int[] literals, int offset, int length, int p1, int p2) {
+		long signature = 0;
+		for (int i=offset; i<offset+length; i++) {
+			signature |= 1L << (ClauseDatabase.index(literals[i]) & 63);
+		}
+		if (isSubsumed(literals, offset, length, signature)) {
+			subsumed++;
+			return false;
+		}
+		if (!clauses.add(literals, offset, length)) {
+			return false; //already known
+		}
+		int c = clauses.size() - 1;
+		if (c == parent1.length) {
+			parent1 = Arrays.copyOf(parent1, c * 2);
+			parent2 = Arrays.copyOf(parent2, c * 2);
+			signatures = Arrays.copyOf(signatures, c * 2);
+			deleted = Arrays.copyOf(deleted, c * 2);
+		}
+		parent1[c] = p1;
+		parent2[c] = p2;
+		signatures[c] = signature;
+		if (length == 0) {
+			emptyClause = c;
+		}
+		deleteSubsumed(c);
+		counters.peakClauseCount = Math.max(counters.peakClauseCount, clauses.size() - deletedCount);
+		for (int i=0; i<length; i++) {
+			addOccurrence(allOccurrences, allOccurrenceCounts, clauses.literal(c, i), c);
+		}
+		passive.add(((long) length << 32) | c);
+		return true;
+	}
+
+	/**
+	 * Forward subsumption: checks if a kept clause is a subset of the new clause.
+	 */
+	private boolean isSubsumed(int[] literals, int offset, int length, long signature) {
+		stamp++;
+		for (int i=offset; i<offset+length; i++) {
+			marks[ClauseDatabase.index(literals[i])] = stamp;
+		}
+		for (int i=offset; i<offset+length; i++) {
+			int n = ClauseDatabase.index(literals[i]);
+			for (int j=0; j<allOccurrenceCounts[n]; j++) {
+				int d = allOccurrences[n][j];
+				if (deleted[d] || (signatures[d] & ~signature) != 0 || clauses.length(d) > length) {
+					continue;
+				}
+				if (allMarked(d)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Backward subsumption: deletes the kept clauses that are supersets of
+	 * the new clause. They all contain its literal with the fewest occurrences.
+	 */
+	private void deleteSubsumed(int c) {
+		int length = clauses.length(c);
+		if (length == 0) {
+			return;
+		}
+		int best = ClauseDatabase.index(clauses.literal(c, 0));
+		for (int i=1; i<length; i++) {
+			int n = ClauseDatabase.index(clauses.literal(c, i));
+			if (allOccurrenceCounts[n] < allOccurrenceCounts[best]) {
+				best = n;
+			}
+		}
+		int kept = 0;
+		for (int j=0; j<allOccurrenceCounts[best]; j++) {
+			int d = allOccurrences[best][j];
+			if (deleted[d]) {
+				continue; //drop it from the list
+			}
+			if ((signatures[c] & ~signatures[d]) == 0 && clauses.length(d) >= length && isSubset(c, d)) {
+				deleted[d] = true;
+				deletedCount++;
+			} else {
+				allOccurrences[best][kept++] = d;
+			}
+		}
+		allOccurrenceCounts[best] = kept;
+	}
+
+	private boolean isSubset(int c, int d) {
+		stamp++;
+		for (int i=0; i<clauses.length(d); i++) {
+			marks[ClauseDatabase.index(clauses.literal(d, i))] = stamp;
+		}
+		return allMarked(c);
+	}
+
+	private boolean allMarked(int clause) {
+		for (int i=0; i<clauses.length(clause); i++) {
+			if (marks[ClauseDatabase.index(clauses.literal(clause, i))] != stamp) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void addOccurrence(int[][] lists, int[] counts, int literal, int clause) {
+		int n = ClauseDatabase.index(literal);
+		if (lists[n] == null) {
+			lists[n] = new int[4];
+		} else if (counts[n] == lists[n].length) {
+			lists[n] = Arrays.copyOf(lists[n], counts[n] * 2);
+		}
+		lists[n][counts[n]++] = clause;
+	}
+
+	private boolean isTautology(int[] arena, int start, int length) {
+		stamp++;
+		for (int i=start; i<start+length; i++) {
+			if (marks[ClauseDatabase.index(-arena[i])] == stamp) {
+				return true;
+			}
+			marks[ClauseDatabase.index(arena[i])] = stamp;
+		}
+		return false;
+	}
+}
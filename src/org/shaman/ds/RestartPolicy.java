@@ -0,0 +1,203 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Locale;
+
+/**
+ * Decides when the {@link SearchEngine} restarts the search with clause
+ * learning. A restart undoes all decisions, the learned clauses are kept.
+ * An instance holds the state for one engine, so a new instance has to be
+ * created for each search.
+ * @author Sebastian Weiß
+ */
+public abstract class RestartPolicy {
+
+	/**
+	 * Called after every conflict.
+	 * @param lbd the literal block distance of the learned clause: the count
+	 * of different decision levels in it
+	 * @return {@code true} if the search should restart now
+	 */
+	protected abstract boolean conflict(int lbd);
+
+	/**
+	 * Called after the engine restarted.
+	 */
+	protected void restarted() {
+	}
+
+	/**
+	 * @return the name of the policy
+	 */
+	@Override
+	public abstract String toString();
+
+	/**
+	 * Never restarts.
+	 * @return a new instance
+	 */
+	public static RestartPolicy none() {
+		return new RestartPolicy() {
+			@Override
+			protected boolean conflict(int lbd) {
+				return false;
+			}
+
+			@Override
+			public String toString() {
+				return "None";
+			}
+		};
+	}
+
+	/**
+	 * Restarts after {@code unit} times the luby sequence (1, 1, 2, 1, 1, 2,
+	 * 4, 1, ...) conflicts.
+	 * @param unit the count of conflicts for the first restart
+	 * @return a new instance
+	 */
+	public static RestartPolicy luby(final int unit) {
+		return new RestartPolicy() {
+			private int restarts = 0;
+			private long count = 0;
+			private long limit = unit;
+
+			@Override
+			protected boolean conflict(int lbd) {
+				return ++count >= limit;
+			}
+
+			@Override
+			protected void restarted() {
+				restarts++;
+				count = 0;
+				limit = unit * lubySequence(restarts + 1);
+			}
+
+			@Override
+			public String toString() {
+				return "Luby";
+			}
+		};
+	}
+
+	/**
+	 * Restarts after {@code first} conflicts, the limit is multiplied with
+	 * {@code factor} after each restart.
+	 * @param first the count of conflicts for the first restart
+	 * @param factor the growth of the limit, greater than 1
+	 * @return a new instance
+	 */
+	public static RestartPolicy geometric(final int first, final double factor) {
+		return new RestartPolicy() {
+			private long count = 0;
+			private double limit = first;
+
+			@Override
+			protected boolean conflict(int lbd) {
+				return ++count >= limit;
+			}
+
+			@Override
+			protected void restarted() {
+				count = 0;
+				limit *= factor;
+			}
+
+			@Override
+			public String toString() {
+				return "Geometric";
+			}
+		};
+	}
+
+	/**
+	 * Restarts like glucose when the learned clauses get worse: if the average
+	 * literal block distance of the last 50 conflicts is 25% higher than the
+	 * average of all conflicts.
+	 * @return a new instance
+	 */
+	public static RestartPolicy glucose() {
+		return new RestartPolicy() {
+			private static final int WINDOW = 50;
+			private static final double K = 0.8;
+			private final int[] recent = new int[WINDOW];
+			private int recentCount = 0;
+			private long recentSum = 0;
+			private int next = 0;
+			private long total = 0;
+			private long totalSum = 0;
+
+			@Override
+			protected boolean conflict(int lbd) {
+				total++;
+				totalSum += lbd;
+				if (recentCount == WINDOW) {
+					recentSum -= recent[next];
+				} else {
+					recentCount++;
+				}
+				recent[next] = lbd;
+				recentSum += lbd;
+				next = (next + 1) % WINDOW;
+				return recentCount == WINDOW
+						&& (recentSum / (double) WINDOW) * K > totalSum / (double) total;
+			}
+
+			@Override
+			protected void restarted() {
+				recentCount = 0;
+				recentSum = 0;
+				next = 0;
+			}
+
+			@Override
+			public String toString() {
+				return "Glucose";
+			}
+		};
+	}
+
+	/**
+	 * @param name the name of the policy: None, Luby, Geometric or Glucose
+	 * (case insensitive), with the default parameters
+	 * @return a new instance of this policy
+	 */
+	public static RestartPolicy forName(String name) {
+		switch (name.toLowerCase(Locale.ROOT)) {
+			case "none": return none();
+			case "luby": return luby(100);
+			case "geometric": return geometric(100, 1.5);
+			case "glucose": return glucose();
+			default: throw new IllegalArgumentException("Unbekannte Restart-Strategie: "+name);
+		}
+	}
+
+	/**
+	 * @param i the position in the sequence, starting at 1
+	 * @return the i-th element of the luby sequence
+	 */
+	static long lubySequence(int i) {
+		//find the finite subsequence that contains i
+		int k = 1;
+		while ((1L << k) - 1 < i) {
+			k++;
+		}
+		while (true) {
+			if (i == (1L << k) - 1) {
+				return 1L << (k - 1);
+			}
+			//recurse into the repeated subsequence
+			i -= (int) ((1L << (k - 1)) - 1);
+			k = 1;
+			while ((1L << k) - 1 < i) {
+				k++;
+			}
+		}
+	}
+}
@@ -0,0 +1,1129 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Non-recursive DPLL search on the int-encoded clauses of a formular.
+ * The assigned literals are kept on a trail, backtracking unassigns them
+ * again, so no formular is copied during the search. <br>
+ * Unit propagation uses two watched literals per clause: a clause is only
+ * visited when one of its two watched literals becomes false. The assigned
+ * literals on the trail that are not processed yet form the propagation queue.
+ * <br>
+ * With the default {@link Heuristic#firstClause() } it finds the same
+ * allocations as the recursive algorithm: the unit clauses are propagated
+ * first, then it branches on the first literal of the first clause that is
+ * not satisfied yet, first setting it to true and then to false.
+ * An allocation is reported as soon as all clauses are satisfied, so it
+ * contains only the literals that were needed. <br>
+ * Alternatively, {@link #solve() } searches one allocation with conflict
+ * driven clause learning: every conflict is analyzed up to the first unique
+ * implication point, the learned clause is added and the search jumps back
+ * to the level where this clause becomes unit. The search can restart
+ * according to a {@link RestartPolicy} and reuse the last value of each
+ * variable for its next decision (phase saving). <br>
+ * {@link #solve(int[]) } solves under assumptions: the assumed literals are
+ * the first decisions and are never flipped. The engine can be reused for
+ * many calls, the learned clauses are kept. Clauses that were added to the
+ * formular in between are taken over at the next call.
+ * @author Sebastian Weiß
+ */
+public class SearchEngine {
+	private final KNF knf;
+	private final ClauseDatabase clauses;
+	private final Heuristic heuristic;
+	private RestartPolicy restartPolicy;
+	private boolean phaseSaving;
+	private int clauseCount;
+
+	//copy of the literals, the two watched literals are moved to the front.
+	//The clauses of the formular come first, the learned clauses are appended
+	private int[] arena;
+	private int arenaSize;
+	private int[] starts;
+	private int[] lengths;
+	private int totalClauses;
+
+	//1 = true, -1 = false, 0 = unassigned; indexed by variable
+	private int[] values;
+	//last value of each variable before it was unassigned
+	private int[] phases;
+	//clause that implied the variable (-1 for decisions) and its decision level
+	private int[] reasons;
+	private int[] levels;
+	//assigned literals in assignment order
+	private int[] trail;
+	private int trailSize;
+	//the trail up to this position is propagated
+	private int queueHead;
+	//for each decision level (starting at 1): start on the trail, the
+	//first clause that might not be satisfied and if the decision was flipped
+	private int[] levelStart;
+	private int[] levelCursor;
+	private boolean[] flipped;
+	private int level;
+	private int cursor;
+
+	//clauses watching a literal, indexed by ClauseDatabase.index(literal)
+	private int[][] watches;
+	private int[] watchCounts;
+
+	//conflict analysis
+	private boolean[] seen;
+	private int[] learned;
+	private int conflict;
+	//own counters, the differences are added to the attached statistics
+	private final SolverStatistics counters = new SolverStatistics();
+	private final SolverStatistics published = new SolverStatistics();
+	private SolverStatistics statistics;
+	//the trace and its enabled levels, so disabled events cost one test
+	private Trace trace;
+	private boolean traceInfo;
+	private boolean traceFine;
+	private boolean traceFinest;
+	private int[] levelMarks;
+	private int levelStamp;
+
+	//the literals assumed by solve(int[]), decided on the first levels
+	private int[] assumptions = new int[0];
+	//the assumptions that caused the last failure
+	private int[] failed = new int[0];
+
+	private boolean modelFound;
+	private boolean finished;
+	//conflict without decisions
+	private boolean unsatisfiable;
+	private volatile boolean interrupted;
+	private CancellationToken cancellation;
+	//the token is only looked at every 256 iterations of the search loops
+	private int polls;
+	//the last call was stopped by the token
+	private boolean cancelled;
+
+	/**
+	 * Prepares the search on the formular with the default heuristic.
+	 * The formular must not be changed while the engine is used.
+	 * @param knf the formular
+	 */
+	public SearchEngine(KNF knf) {
+		this(knf, Heuristic.firstClause());
+	}
+
+	/**
+	 * Prepares the search on the formular.
+	 * The formular must not be changed while the engine is used.
+	 * @param knf the formular
+	 * @param heuristic the branching heuristic, a new instance
+	 */
+	public SearchEngine(KNF knf, Heuristic heuristic) {
+		long start = System.nanoTime();
+		this.knf = knf;
+		this.heuristic = heuristic;
+		this.restartPolicy = RestartPolicy.none();
+		this.clauses = knf.getDatabase();
+		this.clauseCount = clauses.size();
+		int variables = clauses.getMaxVariable();
+		values = new int[variables + 1];
+		phases = new int[variables + 1];
+		levelMarks = new int[variables + 1];
+		reasons = new int[variables + 1];
+		levels = new int[variables + 1];
+		seen = new boolean[variables + 1];
+		learned = new int[16];
+		trail = new int[variables];
+		levelStart = new int[variables + 1];
+		levelCursor = new int[variables + 1];
+		flipped = new boolean[variables + 1];
+
+		arenaSize = clauses.getLiteralCount();
+		arena = Arrays.copyOf(clauses.getArena(), Math.max(16, arenaSize));
+		starts = new int[Math.max(16, clauseCount)];
+		lengths = new int[Math.max(16, clauseCount)];
+		totalClauses = clauseCount;
+		watches = new int[2 * variables + 2][];
+		watchCounts = new int[2 * variables + 2];
+		for (int i=0; i<watches.length; i++) {
+			watches[i] = new int[4];
+		}
+
+		for (int c=0; c<clauseCount && !unsatisfiable; c++) {
+			starts[c] = clauses.start(c);
+			lengths[c] = clauses.length(c);
+			if (lengths[c] == 0) {
+				unsatisfiable = true;
+			} else if (lengths[c] == 1) {
+				//unit clauses are not watched, they are assigned directly
+				int l = arena[starts[c]];
+				if (value(l) == 0) {
+					assign(l, -1);
+				} else if (value(l) < 0) {
+					unsatisfiable = true;
+				}
+			} else {
+				watch(arena[starts[c]], c);
+				watch(arena[starts[c] + 1], c);
+			}
+		}
+		finished = unsatisfiable;
+		heuristic.attach(this);
+		counters.setupTime = System.nanoTime() - start;
+	}
+
+	/**
+	 * Searches the next fullfilling allocation.
+	 * The search continues where the last call stopped, so repeated calls
+	 * enumerate all allocations.
+	 * @return {@code true} if an allocation was found, it can then be obtained
+	 * by {@link #getModel() }; {@code false} if there are no more allocations
+	 * or the search was interrupted
+	 */
+	public boolean nextModel() {
+		long start = System.nanoTime();
+		cancelled = false;
+		try {
+			return enumerate();
+		} finally {
+			finish(start);
+		}
+	}
+
+	private boolean enumerate() {
+		if (finished) {
+			return false;
+		}
+		if (modelFound) {
+			//continue as if the last allocation failed
+			modelFound = false;
+			if (!backtrack()) {
+				finished = true;
+				return false;
+			}
+		}
+		while (true) {
+			if (stopped()) {
+				return false;
+			}
+			if (!propagate()) {
+				counters.conflicts++;
+				if (traceFine) {
+					trace(Trace.Type.CONFLICT, level, 0, conflict);
+				}
+				int start = starts[conflict];
+				for (int i=start; i<start+lengths[conflict]; i++) {
+					heuristic.bump(ClauseDatabase.variable(arena[i]));
+				}
+				heuristic.conflict();
+				if (!backtrack()) {
+					finished = true;
+					return false;
+				}
+				continue;
+			}
+			if (allSatisfied()) {
+				modelFound = true;
+				if (traceInfo) {
+					trace(Trace.Type.MODEL, level, 0, -1);
+				}
+				return true;
+			}
+			decide(heuristic.pickBranchLiteral());
+		}
+	}
+
+	/**
+	 * Searches one fullfilling allocation with conflict driven clause learning.
+	 * This can not be combined with {@link #nextModel() } on the same engine.
+	 * @return {@code true} if an allocation was found, it can then be obtained
+	 * by {@link #getModel() }; {@code false} if the formular is unfullfillable
+	 * or the search was interrupted
+	 */
+	public boolean solve() {
+		if (finished) {
+			return false;
+		}
+		if (modelFound) {
+			return true;
+		}
+		return search();
+	}
+
+	/**
+	 * Searches one fullfilling allocation that contains all the assumed
+	 * literals, with conflict driven clause learning. The search starts again
+	 * at the first decision, but keeps the clauses learned by earlier calls.
+	 * New clauses of the formular are taken over before the search.
+	 * This can not be combined with {@link #nextModel() } on the same engine.
+	 * @param assumptions the assumed literals
+	 * @return {@code true} if an allocation was found, it can then be obtained
+	 * by {@link #getModel() }; {@code false} if the formular is unfullfillable
+	 * under the assumptions or the search was interrupted. Then
+	 * {@link #getFailedAssumptions() } returns the assumptions that caused it.
+	 */
+	public boolean solve(int[] assumptions) {
+		failed = new int[0];
+		synchronize();
+		backjump(0);
+		modelFound = false;
+		if (unsatisfiable) {
+			return false;
+		}
+		ensureLevels(values.length + assumptions.length);
+		this.assumptions = assumptions;
+		try {
+			return search();
+		} finally {
+			this.assumptions = new int[0];
+		}
+	}
+
+	/**
+	 * @return the assumptions of the last call of {@link #solve(int[]) } that
+	 * together make the formular unfullfillable. It is a subset of the
+	 * assumptions, but not necessarily the smallest one. It is empty if the
+	 * formular is unfullfillable without assumptions.
+	 */
+	public int[] getFailedAssumptions() {
+		return failed.clone();
+	}
+
+	/**
+	 * The CDCL search of {@link #solve() } and {@link #solve(int[]) }.
+	 */
+	private boolean search() {
+		long start = System.nanoTime();
+		cancelled = false;
+		try {
+			return cdcl();
+		} finally {
+			finish(start);
+		}
+	}
+
+	private boolean cdcl() {
+		while (true) {
+			if (stopped()) {
+				return false;
+			}
+			if (!propagate()) {
+				counters.conflicts++;
+				if (traceFine) {
+					trace(Trace.Type.CONFLICT, level, 0, conflict);
+				}
+				if (level == 0) {
+					unsatisfiable = true;
+					finished = true;
+					return false;
+				}
+				long analysis = System.nanoTime();
+				int lbd = learn(analyze());
+				counters.analysisTime += System.nanoTime() - analysis;
+				heuristic.conflict();
+				if (restartPolicy.conflict(lbd)) {
+					backjump(0);
+					counters.restarts++;
+					if (traceInfo) {
+						trace(Trace.Type.RESTART, 0, 0, -1);
+					}
+					restartPolicy.restarted();
+				}
+				if ((counters.conflicts & 4095) == 0) {
+					publish(); //keep long searches visible
+				}
+				continue;
+			}
+			if (level < assumptions.length) {
+				int literal = assumptions[level];
+				int v = value(literal);
+				if (v < 0) {
+					analyzeFinal(literal);
+					return false;
+				} else if (v > 0) {
+					newLevel(); //already true, keep the levels in line with the assumptions
+				} else {
+					decide(literal);
+				}
+				continue;
+			}
+			if (allSatisfied()) {
+				modelFound = true;
+				if (traceInfo) {
+					trace(Trace.Type.MODEL, level, 0, -1);
+				}
+				return true;
+			}
+			int literal = heuristic.pickBranchLiteral();
+			if (phaseSaving) {
+				int v = ClauseDatabase.variable(literal);
+				if (phases[v] != 0) {
+					literal = phases[v] > 0 ? v : -v;
+				}
+			}
+			decide(literal);
+		}
+	}
+
+	/**
+	 * Stops the search. It can be called from any thread, the search stops
+	 * at the next decision or conflict and {@link #solve() } or
+	 * {@link #nextModel() } return {@code false}.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	/**
+	 * @return {@code true} if {@link #interrupt() } was called or the last
+	 * call was stopped by the cancellation token
+	 */
+	public boolean isInterrupted() {
+		return interrupted || cancelled;
+	}
+
+	/**
+	 * Sets the token that stops the search calls like {@link #interrupt() }.
+	 * Unlike an interrupt, the engine can be used again with a new token.
+	 * @param cancellation the token or {@code null}
+	 */
+	public void setCancellationToken(CancellationToken cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * @return the cancellation token or {@code null}
+	 */
+	public CancellationToken getCancellationToken() {
+		return cancellation;
+	}
+
+	private boolean stopped() {
+		if (interrupted) {
+			return true;
+		}
+		if (cancellation != null && (++polls & 255) == 0 && cancellation.isCancelled()) {
+			cancelled = true;
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Sets when {@link #solve() } restarts, the default never restarts.
+	 * @param restartPolicy a new instance of the restart policy
+	 */
+	public void setRestartPolicy(RestartPolicy restartPolicy) {
+		this.restartPolicy = restartPolicy;
+	}
+
+	/**
+	 * @return the restart policy
+	 */
+	public RestartPolicy getRestartPolicy() {
+		return restartPolicy;
+	}
+
+	/**
+	 * Enables phase saving for {@link #solve() }: a decision assigns the last
+	 * value the variable had instead of the polarity chosen by the heuristic.
+	 * It is disabled by default.
+	 * @param phaseSaving {@code true} to enable it
+	 */
+	public void setPhaseSaving(boolean phaseSaving) {
+		this.phaseSaving = phaseSaving;
+	}
+
+	/**
+	 * @return {@code true} if phase saving is enabled
+	 */
+	public boolean isPhaseSaving() {
+		return phaseSaving;
+	}
+
+	/**
+	 * @return the count of restarts so far
+	 */
+	public long getRestartCount() {
+		return counters.restarts;
+	}
+
+	/**
+	 * @return the count of conflicts so far
+	 */
+	public long getConflictCount() {
+		return counters.conflicts;
+	}
+
+	/**
+	 * Attaches statistics, every call adds its counters and timings to them.
+	 * The counters since the construction of the engine are added at the
+	 * next call.
+	 * @param statistics the statistics or {@code null}
+	 */
+	public void setStatistics(SolverStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the attached statistics or {@code null}
+	 */
+	public SolverStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Attaches a trace for the decisions, conflicts, learned clauses and models.
+	 * @param trace the trace or {@code null}
+	 */
+	public void setTrace(Trace trace) {
+		this.trace = trace;
+		traceInfo = trace != null && trace.isEnabled(Trace.Level.INFO);
+		traceFine = trace != null && trace.isEnabled(Trace.Level.FINE);
+		traceFinest = trace != null && trace.isEnabled(Trace.Level.FINEST);
+	}
+
+	/**
+	 * @return the attached trace or {@code null}
+	 */
+	public Trace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * @return the branching heuristic
+	 */
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * @return the count of decisions so far, this is the size of the search tree
+	 */
+	public long getDecisionCount() {
+		return counters.decisions;
+	}
+
+	/**
+	 * @return the count of learned clauses
+	 */
+	public int getLearnedCount() {
+		return totalClauses - clauseCount;
+	}
+
+	/**
+	 * Undoes all decisions, so the search can start again. The clauses learned
+	 * so far are kept.
+	 */
+	public void reset() {
+		backjump(0);
+		modelFound = false;
+		finished = unsatisfiable;
+	}
+
+	/**
+	 * Assigns the literals of a cube one after the other as decisions and
+	 * propagates them. The literals of the cube are never flipped, so a
+	 * following {@link #nextModel() } only enumerates the allocations that
+	 * contain the cube. Call {@link #reset() } before the next cube.
+	 * @param cube the literals
+	 * @return -1 if the cube leads to a conflict, 1 if all clauses are
+	 * satisfied (the allocation is then available by {@link #getModel() }),
+	 * otherwise 0
+	 */
+	public int assignCube(int[] cube) {
+		if (finished) {
+			return -1;
+		}
+		for (int i=0; i<=cube.length; i++) {
+			if (!propagate()) {
+				if (level == 0) {
+					unsatisfiable = true;
+				}
+				finished = true;
+				return -1;
+			}
+			if (i == cube.length) {
+				break;
+			}
+			int v = value(cube[i]);
+			if (v < 0) {
+				finished = true;
+				return -1;
+			} else if (v == 0) {
+				decide(cube[i]);
+				flipped[level] = true; //never try the other value
+			}
+		}
+		if (allSatisfied()) {
+			modelFound = true;
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Asks the heuristic for the next decision. Only valid if
+	 * {@link #assignCube(int[]) } returned 0.
+	 * @return the literal the search would branch on next
+	 */
+	public int nextDecision() {
+		return heuristic.pickBranchLiteral();
+	}
+
+	/**
+	 * @return the allocation found by the last successful call to
+	 * {@link #nextModel() } or {@link #solve() } as signed literals in
+	 * assignment order
+	 */
+	public int[] getModelLiterals() {
+		return Arrays.copyOf(trail, trailSize);
+	}
+
+	/**
+	 * @return the allocation found by the last successful call to
+	 * {@link #nextModel() } or {@link #solve() } in assignment order
+	 */
+	public Set<KNF.Literal> getModel() {
+		VariableTable variables = knf.getVariables();
+		Set<KNF.Literal> model = new LinkedHashSet<>();
+		for (int i=0; i<trailSize; i++) {
+			model.add(variables.decode(trail[i]));
+		}
+		return model;
+	}
+
+	/**
+	 * @return the highest variable index
+	 */
+	public int getVariableCount() {
+		return values.length - 1;
+	}
+
+	/**
+	 * @return the count of clauses of the formular, without learned clauses
+	 */
+	public int getClauseCount() {
+		return clauseCount;
+	}
+
+	/**
+	 * @param clause the clause index in the formular
+	 * @return the count of literals in the clause
+	 */
+	public int getClauseLength(int clause) {
+		return clauses.length(clause);
+	}
+
+	/**
+	 * @param clause the clause index in the formular
+	 * @param i the position in the clause
+	 * @return the i-th literal, in the order of the formular
+	 */
+	public int getClauseLiteral(int clause, int i) {
+		return clauses.literal(clause, i);
+	}
+
+	/**
+	 * @param literal the signed literal
+	 * @return 1 if it is true, -1 if it is false and 0 if it is unassigned
+	 */
+	public int valueOf(int literal) {
+		return value(literal);
+	}
+
+	/**
+	 * @param clause the clause index
+	 * @return {@code true} if one literal of the clause is true
+	 */
+	public boolean isClauseSatisfied(int clause) {
+		return isSatisfied(clause);
+	}
+
+	/**
+	 * All clauses of the formular before the returned one are satisfied.
+	 * @return the index of the first clause that is not satisfied or
+	 * {@link #getClauseCount() } if all are satisfied
+	 */
+	public int firstUnsatisfiedClause() {
+		allSatisfied();
+		return cursor;
+	}
+
+	private int value(int literal) {
+		return literal > 0 ? values[literal] : -values[-literal];
+	}
+
+	private void assign(int literal, int reason) {
+		int v = ClauseDatabase.variable(literal);
+		values[v] = literal > 0 ? 1 : -1;
+		reasons[v] = reason;
+		levels[v] = level;
+		trail[trailSize++] = literal;
+	}
+
+	private void decide(int literal) {
+		counters.decisions++;
+		newLevel();
+		assign(literal, -1);
+		if (traceFine) {
+			trace(Trace.Type.DECISION, level, literal, -1);
+		}
+	}
+
+	private void newLevel() {
+		level++;
+		levelStart[level] = trailSize;
+		levelCursor[level] = cursor;
+		flipped[level] = false;
+	}
+
+	private void watch(int literal, int clause) {
+		int index = ClauseDatabase.index(literal);
+		int[] list = watches[index];
+		if (watchCounts[index] == list.length) {
+			list = Arrays.copyOf(list, list.length * 2);
+			watches[index] = list;
+		}
+		list[watchCounts[index]++] = clause;
+	}
+
+	/**
+	 * Processes the assigned literals and assigns the literals of unit clauses.
+	 * @return {@code false} if a clause became false
+	 */
+	private boolean propagate() {
+		while (queueHead < trailSize) {
+			counters.propagations++;
+			int falseLiteral = -trail[queueHead++];
+			int index = ClauseDatabase.index(falseLiteral);
+			int[] list = watches[index];
+			int count = watchCounts[index];
+			int kept = 0;
+			for (int w=0; w<count; w++) {
+				int c = list[w];
+				int start = starts[c];
+				//the false literal is moved to the second position
+				if (arena[start] == falseLiteral) {
+					arena[start] = arena[start + 1];
+					arena[start + 1] = falseLiteral;
+				}
+				int first = arena[start];
+				if (value(first) > 0) {
+					list[kept++] = c; //clause is satisfied
+					continue;
+				}
+				//search a new literal to watch
+				boolean moved = false;
+				int end = start + lengths[c];
+				for (int i=start+2; i<end; i++) {
+					int l = arena[i];
+					if (value(l) >= 0) {
+						arena[start + 1] = l;
+						arena[i] = falseLiteral;
+						watch(l, c);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				list[kept++] = c;
+				if (value(first) < 0) {
+					//conflict, keep the remaining watches
+					conflict = c;
+					for (w++; w<count; w++) {
+						list[kept++] = list[w];
+					}
+					watchCounts[index] = kept;
+					queueHead = trailSize;
+					return false;
+				}
+				if (value(first) == 0) {
+					assign(first, c); //unit clause
+					if (traceFinest) {
+						trace(Trace.Type.PROPAGATION, level, first, c);
+					}
+				}
+			}
+			watchCounts[index] = kept;
+		}
+		return true;
+	}
+
+	/**
+	 * Undoes the last unflipped decision and assigns its negation instead.
+	 * @return {@code false} if there are no more decisions to flip
+	 */
+	private boolean backtrack() {
+		int target = level;
+		while (target > 0 && flipped[target]) {
+			target--;
+		}
+		if (target == 0) {
+			backjump(0);
+			return false;
+		}
+		counters.backtracks++;
+		if (traceFine) {
+			trace(Trace.Type.BACKTRACK, target, 0, -1);
+		}
+		level = target;
+		int decision = trail[levelStart[level]];
+		undo(levelStart[level]);
+		cursor = levelCursor[level];
+		flipped[level] = true;
+		assign(-decision, -1);
+		return true;
+	}
+
+	/**
+	 * Analyzes the current conflict up to the first unique implication point.
+	 * @return the length of the learned clause in {@link #learned}, the
+	 * asserting literal is at the first position, a literal of the highest
+	 * remaining level at the second position
+	 */
+	private int analyze() {
+		int size = 1; //first position is reserved for the asserting literal
+		int open = 0;
+		int literal = 0;
+		int index = trailSize - 1;
+		int c = conflict;
+		do {
+			int start = starts[c];
+			for (int i=start; i<start+lengths[c]; i++) {
+				int q = arena[i];
+				int v = ClauseDatabase.variable(q);
+				if (q == literal || seen[v] || levels[v] == 0) {
+					continue;
+				}
+				seen[v] = true;
+				heuristic.bump(v);
+				if (levels[v] == level) {
+					open++;
+				} else {
+					if (size == learned.length) {
+						learned = Arrays.copyOf(learned, size * 2);
+					}
+					learned[size++] = q;
+				}
+			}
+			//next marked literal on the trail
+			while (!seen[ClauseDatabase.variable(trail[index])]) {
+				index--;
+			}
+			literal = trail[index--];
+			int v = ClauseDatabase.variable(literal);
+			c = reasons[v];
+			seen[v] = false;
+			open--;
+		} while (open > 0);
+		learned[0] = -literal;
+
+		//clear marks, move a literal of the highest level to the second position
+		int max = 1;
+		for (int i=1; i<size; i++) {
+			int v = ClauseDatabase.variable(learned[i]);
+			seen[v] = false;
+			if (levels[v] > levels[ClauseDatabase.variable(learned[max])]) {
+				max = i;
+			}
+		}
+		if (size > 1) {
+			int tmp = learned[1];
+			learned[1] = learned[max];
+			learned[max] = tmp;
+		}
+		return size;
+	}
+
+	/**
+	 * Collects the assumptions that imply the negation of the false assumption
+	 * into {@link #failed}: follows the reasons back from the negation on the
+	 * trail, the assumptions are the decisions.
+	 * @param literal the assumption that is false
+	 */
+	private void analyzeFinal(int literal) {
+		int size = 0;
+		int[] result = new int[Math.min(assumptions.length, level) + 1];
+		result[size++] = literal;
+		if (level > 0) {
+			seen[ClauseDatabase.variable(literal)] = true;
+			for (int i=trailSize-1; i>=levelStart[1]; i--) {
+				int l = trail[i];
+				int v = ClauseDatabase.variable(l);
+				if (!seen[v]) {
+					continue;
+				}
+				seen[v] = false;
+				int c = reasons[v];
+				if (c < 0) {
+					result[size++] = l;
+					continue;
+				}
+				int start = starts[c];
+				for (int j=start; j<start+lengths[c]; j++) {
+					int w = ClauseDatabase.variable(arena[j]);
+					if (arena[j] != l && levels[w] > 0) {
+						seen[w] = true;
+					}
+				}
+			}
+		}
+		failed = Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Jumps back to the level where the learned clause is unit, adds the
+	 * clause and assigns its asserting literal.
+	 * @param size the length of the learned clause
+	 * @return the literal block distance of the clause
+	 */
+	private int learn(int size) {
+		//count the different levels
+		if (++levelStamp == 0) {
+			Arrays.fill(levelMarks, 0);
+			levelStamp = 1;
+		}
+		int lbd = 0;
+		for (int i=0; i<size; i++) {
+			int l = levels[ClauseDatabase.variable(learned[i])];
+			if (levelMarks[l] != levelStamp) {
+				levelMarks[l] = levelStamp;
+				lbd++;
+			}
+		}
+		counters.learnedClauses++;
+		int target = size == 1 ? 0 : levels[ClauseDatabase.variable(learned[1])];
+		backjump(target);
+		if (size == 1) {
+			assign(learned[0], -1);
+			if (traceFine) {
+				trace(Trace.Type.LEARNED, target, learned[0], -1);
+			}
+			return lbd;
+		}
+		int c = addClause(learned, size);
+		watch(learned[0], c);
+		watch(learned[1], c);
+		assign(learned[0], c);
+		if (traceFine) {
+			trace(Trace.Type.LEARNED, target, learned[0], c);
+		}
+		return lbd;
+	}
+
+	/**
+	 * Undoes all decision levels above the target level.
+	 * @param target the new decision level
+	 */
+	private void backjump(int target) {
+		if (target < level) {
+			counters.backtracks++;
+			if (traceFine) {
+				trace(Trace.Type.BACKTRACK, target, 0, -1);
+			}
+			undo(levelStart[target + 1]);
+			cursor = levelCursor[target + 1];
+			level = target;
+		}
+	}
+
+	/**
+	 * Takes over the clauses that were added to the formular since the last
+	 * call. They are inserted behind the clauses of the formular, so the
+	 * learned clauses are renumbered.
+	 */
+	private void synchronize() {
+		int count = clauses.size();
+		ensureVariables(Math.max(clauses.getMaxVariable(), knf.getVariables().size()));
+		if (count == clauseCount) {
+			return;
+		}
+		backjump(0);
+		int added = count - clauseCount;
+		int learnedCount = totalClauses - clauseCount;
+		if (totalClauses + added > starts.length) {
+			starts = Arrays.copyOf(starts, Math.max(totalClauses + added, starts.length * 2));
+			lengths = Arrays.copyOf(lengths, starts.length);
+		}
+		System.arraycopy(starts, clauseCount, starts, count, learnedCount);
+		System.arraycopy(lengths, clauseCount, lengths, count, learnedCount);
+		for (int i=0; i<watches.length; i++) {
+			for (int j=0; j<watchCounts[i]; j++) {
+				if (watches[i][j] >= clauseCount) {
+					watches[i][j] += added;
+				}
+			}
+		}
+		for (int i=0; i<trailSize; i++) {
+			int v = ClauseDatabase.variable(trail[i]);
+			if (reasons[v] >= clauseCount) {
+				reasons[v] += added;
+			}
+		}
+		totalClauses += added;
+		for (int c=clauseCount; c<count; c++) {
+			int length = clauses.length(c);
+			if (arenaSize + length > arena.length) {
+				arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length * 2));
+			}
+			System.arraycopy(clauses.getArena(), clauses.start(c), arena, arenaSize, length);
+			starts[c] = arenaSize;
+			lengths[c] = length;
+			arenaSize += length;
+		}
+		int first = clauseCount;
+		clauseCount = count;
+		for (int c=first; c<count && !unsatisfiable; c++) {
+			attach(c);
+		}
+		finished = unsatisfiable;
+	}
+
+	/**
+	 * Watches a new clause of the formular on decision level 0. The literals
+	 * that are not false are moved to the front.
+	 */
+	private void attach(int c) {
+		int start = starts[c];
+		int open = 0;
+		for (int i=start; i<start+lengths[c]; i++) {
+			if (value(arena[i]) >= 0) {
+				int tmp = arena[start + open];
+				arena[start + open] = arena[i];
+				arena[i] = tmp;
+				open++;
+			}
+		}
+		if (open == 0) {
+			unsatisfiable = true;
+			return;
+		}
+		if (open == 1 && value(arena[start]) == 0) {
+			assign(arena[start], c);
+		}
+		if (lengths[c] > 1) {
+			watch(arena[start], c);
+			watch(arena[start + 1], c);
+		}
+	}
+
+	/**
+	 * Grows the arrays of the variables.
+	 * @param variables the new highest variable index
+	 */
+	private void ensureVariables(int variables) {
+		int old = values.length - 1;
+		if (variables <= old) {
+			return;
+		}
+		values = Arrays.copyOf(values, variables + 1);
+		phases = Arrays.copyOf(phases, variables + 1);
+		reasons = Arrays.copyOf(reasons, variables + 1);
+		levels = Arrays.copyOf(levels, variables + 1);
+		seen = Arrays.copyOf(seen, variables + 1);
+		trail = Arrays.copyOf(trail, variables);
+		ensureLevels(variables + 1);
+		watches = Arrays.copyOf(watches, 2 * variables + 2);
+		watchCounts = Arrays.copyOf(watchCounts, 2 * variables + 2);
+		for (int i=2*old+2; i<watches.length; i++) {
+			watches[i] = new int[4];
+		}
+		heuristic.variablesAdded(old + 1);
+	}
+
+	/**
+	 * Grows the arrays of the decision levels.
+	 * @param size the count of levels, including level 0
+	 */
+	private void ensureLevels(int size) {
+		if (size > levelStart.length) {
+			levelStart = Arrays.copyOf(levelStart, size);
+			levelCursor = Arrays.copyOf(levelCursor, size);
+			flipped = Arrays.copyOf(flipped, size);
+			levelMarks = Arrays.copyOf(levelMarks, size);
+		}
+	}
+
+	private int addClause(int[] literals, int size) {
+		if (arenaSize + size > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(arenaSize + size, arena.length * 2));
+		}
+		if (totalClauses == starts.length) {
+			starts = Arrays.copyOf(starts, totalClauses * 2);
+			lengths = Arrays.copyOf(lengths, totalClauses * 2);
+		}
+		System.arraycopy(literals, 0, arena, arenaSize, size);
+		starts[totalClauses] = arenaSize;
+		lengths[totalClauses] = size;
+		arenaSize += size;
+		return totalClauses++;
+	}
+
+	/**
+	 * Sends an event to the trace, only called if its level is enabled.
+	 * The clause contents are not part of the event, the engine reorders them.
+	 */
+	private void trace(Trace.Type type, int depth, int literal, int clause) {
+		KNF.Literal l = literal == 0 ? null : knf.getVariables().decode(literal);
+		Object detail = type == Trace.Type.MODEL ? getModel() : null;
+		trace.event(new TraceEvent(type, depth, l, clause, -1, detail));
+	}
+
+	private void finish(long start) {
+		counters.searchTime += System.nanoTime() - start;
+		counters.calls++;
+		publish();
+	}
+
+	private void publish() {
+		counters.peakClauseCount = Math.max(counters.peakClauseCount, totalClauses);
+		if (statistics != null) {
+			statistics.add(counters, published);
+		}
+	}
+
+	/**
+	 * Unassigns the trail down to the specified size
+	 * @param size the new trail size
+	 */
+	private void undo(int size) {
+		for (int i=trailSize-1; i>=size; i--) {
+			int v = ClauseDatabase.variable(trail[i]);
+			phases[v] = values[v];
+			values[v] = 0;
+			heuristic.unassigned(v);
+		}
+		trailSize = size;
+		queueHead = Math.min(queueHead, size);
+	}
+
+	private boolean isSatisfied(int clause) {
+		int start = starts[clause];
+		for (int i=start; i<start+lengths[clause]; i++) {
+			if (value(arena[i]) > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the cursor behind the satisfied clauses.
+	 * The clauses before the cursor stay satisfied until the search
+	 * backtracks to a lower decision level.
+	 * @return {@code true} if all clauses are satisfied
+	 */
+	private boolean allSatisfied() {
+		while (cursor < clauseCount && isSatisfied(cursor)) {
+			cursor++;
+		}
+		return cursor == clauseCount;
+	}
+}
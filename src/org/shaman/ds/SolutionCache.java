@@ -0,0 +1,388 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the results of solved formulars. <br>
+ * A formular is identified by a 128 bit {@link Fingerprint} that does not
+ * depend on the order of the clauses and literals or on the order in which
+ * the variables were interned, so the same formular written differently is
+ * found again. The cache holds at most a given count of entries and of model
+ * literals, the least recently used entries are removed first. It can be
+ * saved to and loaded from a file. <br>
+ * {@link DPLL#solve(org.shaman.ds.KNF, org.shaman.ds.CancellationToken, org.shaman.ds.SolutionCache) },
+ * {@link Resolution#solve(org.shaman.ds.KNF, org.shaman.ds.Output, org.shaman.ds.CancellationToken, org.shaman.ds.SolutionCache) }
+ * and the {@link BatchRunner} can use a cache. <br>
+ * All methods are thread safe.
+ * @author Sebastian Weiß
+ */
+public class SolutionCache {
+	private static final int MAGIC = 0x4b4e4643; //KNFC
+	private static final long SEED1 = 0x9e3779b97f4a7c15L;
+	private static final long SEED2 = 0xc2b2ae3d27d4eb4fL;
+
+	private final int maxEntries;
+	private final long maxLiterals;
+	private final LinkedHashMap<Fingerprint, Result> entries;
+	private long literals;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a cache with at most 10000 entries.
+	 */
+	public SolutionCache() {
+		this(10000, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maxEntries the maximal count of entries
+	 * @param maxLiterals the maximal count of literals in all stored models
+	 */
+	public SolutionCache(int maxEntries, long maxLiterals) {
+		if (maxEntries < 1 || maxLiterals < 0) {
+			throw new IllegalArgumentException("Ungültige Größe des Caches");
+		}
+		this.maxEntries = maxEntries;
+		this.maxLiterals = maxLiterals;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true); //access order
+	}
+
+	/**
+	 * Solves the formular with conflict driven clause learning, or returns
+	 * the cached result.
+	 * @param knf the formular
+	 * @return the result, {@code null} if the search was interrupted
+	 */
+	public Result solve(KNF knf) {
+		return solve(knf, null);
+	}
+
+	/**
+	 * Solves the formular with conflict driven clause learning until the
+	 * token is cancelled, or returns the cached result.
+	 * @param knf the formular
+	 * @param cancellation the token or {@code null}
+	 * @return the result, {@code null} if the search was cancelled
+	 */
+	public Result solve(KNF knf, CancellationToken cancellation) {
+		Fingerprint key = fingerprint(knf);
+		Result result = get(key);
+		if (result != null) {
+			return result;
+		}
+		SearchEngine engine = new SearchEngine(knf, Heuristic.vsids());
+		engine.setCancellationToken(cancellation);
+		if (engine.solve()) {
+			result = new Result(true, engine.getModel());
+		} else if (engine.isInterrupted()) {
+			return null;
+		} else {
+			result = new Result(false, null);
+		}
+		put(key, result);
+		return result;
+	}
+
+	/**
+	 * @param knf the formular
+	 * @return the cached result or {@code null}
+	 */
+	public Result get(KNF knf) {
+		return get(fingerprint(knf));
+	}
+
+	/**
+	 * @param key the fingerprint of the formular
+	 * @return the cached result or {@code null}
+	 */
+	public synchronized Result get(Fingerprint key) {
+		Result result = entries.get(key);
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	/**
+	 * Stores a result.
+	 * @param knf the formular
+	 * @param result the result
+	 */
+	public void put(KNF knf, Result result) {
+		put(fingerprint(knf), result);
+	}
+
+	/**
+	 * Stores a result, the least recently used entries are removed if the
+	 * cache is full.
+	 * @param key the fingerprint of the formular
+	 * @param result the result
+	 */
+	public synchronized void put(Fingerprint key, Result result) {
+		if (result.getSize() > maxLiterals) {
+			return; //would remove everything
+		}
+		Result old = entries.put(key, result);
+		if (old != null) {
+			literals -= old.getSize();
+		}
+		literals += result.getSize();
+		Iterator<Result> it = entries.values().iterator();
+		while (entries.size() > maxEntries || literals > maxLiterals) {
+			literals -= it.next().getSize();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Removes all entries, the counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		literals = 0;
+	}
+
+	/**
+	 * @return the count of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the count of lookups that found a result
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the count of lookups that found nothing
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the ratio of the hits to all lookups, 0 without lookups
+	 */
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**
+	 * Saves all entries, from the least to the most recently used.
+	 * @param file the file
+	 * @throws IOException if the file can not be written
+	 */
+	public synchronized void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(entries.size());
+			for (Map.Entry<Fingerprint, Result> e : entries.entrySet()) {
+				out.writeLong(e.getKey().high);
+				out.writeLong(e.getKey().low);
+				Result r = e.getValue();
+				out.writeBoolean(r.satisfiable);
+				if (r.satisfiable) {
+					out.writeInt(r.model.size());
+					for (KNF.Literal l : r.model) {
+						out.writeUTF(l.getVariable());
+						out.writeBoolean(l.isNegated());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the entries of a file that was written by {@link #save(java.io.File) }.
+	 * @param file the file
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if the file is no saved cache
+	 */
+	public synchronized void load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException("Keine gespeicherten Lösungen: "+file);
+			}
+			int count = in.readInt();
+			for (int i=0; i<count; i++) {
+				Fingerprint key = new Fingerprint(in.readLong(), in.readLong());
+				Set<KNF.Literal> model = null;
+				boolean satisfiable = in.readBoolean();
+				if (satisfiable) {
+					int size = in.readInt();
+					model = new LinkedHashSet<>();
+					for (int j=0; j<size; j++) {
+						model.add(new KNF.Literal(in.readUTF(), in.readBoolean()));
+					}
+				}
+				put(key, new Result(satisfiable, model));
+			}
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of a formular. Every variable name is hashed
+	 * once, a clause is the sum of its mixed literal hashes and the formular
+	 * is the sum of its mixed clause hashes, so the order does not matter.
+	 * Two independent hashes of 64 bits are computed with different seeds.
+	 * @param knf the formular
+	 * @return the fingerprint
+	 */
+	public static Fingerprint fingerprint(KNF knf) {
+		VariableTable variables = knf.getVariables();
+		ClauseDatabase db = knf.getDatabase();
+		long[] names1 = new long[variables.size() + 1];
+		long[] names2 = new long[variables.size() + 1];
+		for (int v=1; v<=variables.size(); v++) {
+			String name = variables.getName(v);
+			names1[v] = hash(name, SEED1);
+			names2[v] = hash(name, SEED2);
+		}
+		int[] arena = db.getArena();
+		long high = db.size();
+		long low = db.size();
+		for (int c=0; c<db.size(); c++) {
+			long clause1 = 0;
+			long clause2 = 0;
+			for (int i=db.start(c); i<db.start(c)+db.length(c); i++) {
+				int l = arena[i];
+				int v = ClauseDatabase.variable(l);
+				clause1 += mix(l > 0 ? names1[v] : ~names1[v]);
+				clause2 += mix(l > 0 ? names2[v] : ~names2[v]);
+			}
+			high += mix(clause1 + SEED1);
+			low += mix(clause2 + SEED2);
+		}
+		return new Fingerprint(high, low);
+	}
+
+	private static long hash(String name, long seed) {
+		long h = seed;
+		for (int i=0; i<name.length(); i++) {
+			h = mix(h + name.charAt(i));
+		}
+		return mix(h + name.length());
+	}
+
+	//finalizer of MurmurHash3
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * The 128 bit fingerprint of a formular.
+	 */
+	public static final class Fingerprint {
+		private final long high;
+		private final long low;
+
+		public Fingerprint(long high, long low) {
+			this.high = high;
+			this.low = low;
+		}
+
+		public long getHigh() {
+			return high;
+		}
+
+		public long getLow() {
+			return low;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (low ^ (low >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Fingerprint)) {
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return high == other.high && low == other.low;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%016x%016x", high, low);
+		}
+	}
+
+	/**
+	 * The result of a formular: if it is fullfillable and a fullfilling
+	 * allocation.
+	 */
+	public static final class Result {
+		private final boolean satisfiable;
+		private final Set<KNF.Literal> model;
+
+		/**
+		 * @param satisfiable {@code true} if the formular is fullfillable
+		 * @param model a fullfilling allocation, it is ignored if the
+		 * formular is unfullfillable
+		 */
+		public Result(boolean satisfiable, Set<KNF.Literal> model) {
+			this.satisfiable = satisfiable;
+			this.model = satisfiable ? Collections.unmodifiableSet(new LinkedHashSet<>(model)) : null;
+		}
+
+		/**
+		 * @return {@code true} if the formular is fullfillable
+		 */
+		public boolean isSatisfiable() {
+			return satisfiable;
+		}
+
+		/**
+		 * @return a fullfilling allocation or {@code null} if the formular
+		 * is unfullfillable
+		 */
+		public Set<KNF.Literal> getModel() {
+			return model;
+		}
+
+		/**
+		 * @return this result with empty statistics
+		 */
+		SolverResult toSolverResult() {
+			return new SolverResult(satisfiable ? SolverResult.Status.SATISFIABLE : SolverResult.Status.UNSATISFIABLE,
+					model, new SolverStatistics());
+		}
+
+		private int getSize() {
+			return model == null ? 0 : model.size();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The result of a solver call with a {@link CancellationToken}: fullfillable,
+ * unfullfillable or unknown if the call was cancelled, together with the
+ * statistics of the call.
+ * @author Sebastian Weiß
+ */
+public class SolverResult {
+
+	public static enum Status {
+		SATISFIABLE,
+		UNSATISFIABLE,
+		/**
+		 * The call was cancelled before it found an answer.
+		 */
+		UNKNOWN
+	}
+
+	private final Status status;
+	private final Set<KNF.Literal> model;
+	private final SolverStatistics statistics;
+
+	/**
+	 * @param status the status
+	 * @param model a fullfilling allocation or {@code null}, it is ignored
+	 * unless the status is {@link Status#SATISFIABLE}
+	 * @param statistics the statistics of the call
+	 */
+	public SolverResult(Status status, Set<KNF.Literal> model, SolverStatistics statistics) {
+		this.status = status;
+		this.model = status == Status.SATISFIABLE && model != null
+				? Collections.unmodifiableSet(new LinkedHashSet<>(model)) : null;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return a fullfilling allocation or {@code null} if the formular is not
+	 * fullfillable, the call was cancelled or the solver does not find
+	 * allocations (resolution)
+	 */
+	public Set<KNF.Literal> getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the counters and timings of the call, also if it was cancelled
+	 */
+	public SolverStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		return model == null ? status.toString() : status+" "+model;
+	}
+}
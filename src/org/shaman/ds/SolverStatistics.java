@@ -0,0 +1,254 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timings of the solvers. <br>
+ * A {@link SearchEngine} or {@link ResolutionEngine} counts into its own
+ * instance without synchronization and adds the differences to the attached
+ * statistics at the end of every call (and every few thousand conflicts
+ * during long searches), so the counters cost almost nothing in the search
+ * loops. An attached instance can be shared by several solvers and threads,
+ * it sums up all of their calls. It can be registered as a MBean.
+ * <br>
+ * The times are in nanoseconds: setup is the construction of the engine,
+ * search the time spent in the search calls and analysis the part of the
+ * search spent in conflict analysis and learning.
+ * @author Sebastian Weiß
+ */
+public class SolverStatistics implements SolverStatisticsMBean {
+	long calls;
+	long decisions;
+	long propagations;
+	long conflicts;
+	long backtracks;
+	long restarts;
+	long learnedClauses;
+	long resolvents;
+	long rejectedResolvents;
+	long peakClauseCount;
+	long setupTime;
+	long searchTime;
+	long analysisTime;
+
+	private ObjectName name;
+
+	/**
+	 * @return the count of finished search calls
+	 */
+	@Override
+	public synchronized long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the count of decisions
+	 */
+	@Override
+	public synchronized long getDecisions() {
+		return decisions;
+	}
+
+	/**
+	 * @return the count of assigned literals that were propagated
+	 */
+	@Override
+	public synchronized long getPropagations() {
+		return propagations;
+	}
+
+	/**
+	 * @return the count of conflicts
+	 */
+	@Override
+	public synchronized long getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * @return the count of backtracks and backjumps
+	 */
+	@Override
+	public synchronized long getBacktracks() {
+		return backtracks;
+	}
+
+	/**
+	 * @return the count of restarts
+	 */
+	@Override
+	public synchronized long getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * @return the count of learned clauses
+	 */
+	@Override
+	public synchronized long getLearnedClauses() {
+		return learnedClauses;
+	}
+
+	/**
+	 * @return the count of resolvents that were kept
+	 */
+	@Override
+	public synchronized long getResolvents() {
+		return resolvents;
+	}
+
+	/**
+	 * @return the count of resolved pairs whose resolvent was dropped: a
+	 * tautology, a duplicate or subsumed
+	 */
+	@Override
+	public synchronized long getRejectedResolvents() {
+		return rejectedResolvents;
+	}
+
+	/**
+	 * @return the highest count of clauses a solver held at once
+	 */
+	@Override
+	public synchronized long getPeakClauseCount() {
+		return peakClauseCount;
+	}
+
+	/**
+	 * @return the time to set up the engines in nanoseconds
+	 */
+	@Override
+	public synchronized long getSetupTime() {
+		return setupTime;
+	}
+
+	/**
+	 * @return the time of the search calls in nanoseconds
+	 */
+	@Override
+	public synchronized long getSearchTime() {
+		return searchTime;
+	}
+
+	/**
+	 * @return the time of conflict analysis and learning in nanoseconds, it
+	 * is part of the search time
+	 */
+	@Override
+	public synchronized long getAnalysisTime() {
+		return analysisTime;
+	}
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	@Override
+	public synchronized void reset() {
+		calls = decisions = propagations = conflicts = backtracks = restarts = 0;
+		learnedClauses = resolvents = rejectedResolvents = peakClauseCount = 0;
+		setupTime = searchTime = analysisTime = 0;
+	}
+
+	/**
+	 * @return a copy of the current values
+	 */
+	public synchronized SolverStatistics copy() {
+		SolverStatistics s = new SolverStatistics();
+		s.add(this, new SolverStatistics());
+		return s;
+	}
+
+	/**
+	 * Adds what the solver counted since its last call, used by the engines.
+	 * @param current the counters of the solver
+	 * @param published the counters at the last call, they are set to the
+	 * current counters
+	 */
+	synchronized void add(SolverStatistics current, SolverStatistics published) {
+		calls += current.calls - published.calls;
+		decisions += current.decisions - published.decisions;
+		propagations += current.propagations - published.propagations;
+		conflicts += current.conflicts - published.conflicts;
+		backtracks += current.backtracks - published.backtracks;
+		restarts += current.restarts - published.restarts;
+		learnedClauses += current.learnedClauses - published.learnedClauses;
+		resolvents += current.resolvents - published.resolvents;
+		rejectedResolvents += current.rejectedResolvents - published.rejectedResolvents;
+		peakClauseCount = Math.max(peakClauseCount, current.peakClauseCount);
+		setupTime += current.setupTime - published.setupTime;
+		searchTime += current.searchTime - published.searchTime;
+		analysisTime += current.analysisTime - published.analysisTime;
+		if (published != current) {
+			published.calls = current.calls;
+			published.decisions = current.decisions;
+			published.propagations = current.propagations;
+			published.conflicts = current.conflicts;
+			published.backtracks = current.backtracks;
+			published.restarts = current.restarts;
+			published.learnedClauses = current.learnedClauses;
+			published.resolvents = current.resolvents;
+			published.rejectedResolvents = current.rejectedResolvents;
+			published.setupTime = current.setupTime;
+			published.searchTime = current.searchTime;
+			published.analysisTime = current.analysisTime;
+		}
+	}
+
+	/**
+	 * Registers these statistics at the platform MBean server under
+	 * {@code org.shaman.ds:type=SolverStatistics,name=<name>}.
+	 * @param name the name of the statistics
+	 * @return the object name
+	 * @throws JMException if the name is invalid or already registered
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		if (this.name != null) {
+			throw new IllegalStateException("Statistik ist bereits registriert: "+this.name);
+		}
+		ObjectName objectName = new ObjectName("org.shaman.ds:type=SolverStatistics,name="+ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.name = objectName;
+		return objectName;
+	}
+
+	/**
+	 * Removes these statistics from the MBean server.
+	 * @throws JMException if the MBean server refuses it
+	 */
+	public synchronized void unregister() throws JMException {
+		if (name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		}
+	}
+
+	/**
+	 * Prints the counters and timings.
+	 * @param out the output
+	 */
+	public synchronized void print(Output out) {
+		out.println("Entscheidungen: "+decisions+", Propagationen: "+propagations
+				+", Konflikte: "+conflicts+", Backtracks: "+backtracks+", Restarts: "+restarts);
+		out.println("Gelernte Klauseln: "+learnedClauses+", Resolventen: "+resolvents
+				+", verworfen: "+rejectedResolvents+", maximale Klauselanzahl: "+peakClauseCount);
+		out.println("Aufbau: "+setupTime/1000000+" ms, Suche: "+searchTime/1000000
+				+" ms, davon Konfliktanalyse: "+analysisTime/1000000+" ms");
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SolverStatistics{calls="+calls+", decisions="+decisions+", propagations="+propagations
+				+", conflicts="+conflicts+", backtracks="+backtracks+", restarts="+restarts
+				+", learnedClauses="+learnedClauses+", resolvents="+resolvents
+				+", rejectedResolvents="+rejectedResolvents+", peakClauseCount="+peakClauseCount
+				+", setupTime="+setupTime+", searchTime="+searchTime+", analysisTime="+analysisTime+"}";
+	}
+}
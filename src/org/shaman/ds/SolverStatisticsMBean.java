@@ -0,0 +1,29 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+/**
+ * The management interface of {@link SolverStatistics}, so the counters can
+ * be watched with JMX tools like JConsole.
+ * @author Sebastian Weiß
+ */
+public interface SolverStatisticsMBean {
+	long getCalls();
+	long getDecisions();
+	long getPropagations();
+	long getConflicts();
+	long getBacktracks();
+	long getRestarts();
+	long getLearnedClauses();
+	long getResolvents();
+	long getRejectedResolvents();
+	long getPeakClauseCount();
+	long getSetupTime();
+	long getSearchTime();
+	long getAnalysisTime();
+	void reset();
+}
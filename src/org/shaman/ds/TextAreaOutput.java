@@ -0,0 +1,139 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Writes into a text area at most {@code fps} times per second, all text
+ * printed in between is appended at once. The text area keeps at most
+ * {@code maxChars} chars, the oldest lines are removed first, so long traces
+ * do not slow down the GUI. After {@link #close() } the remaining text is
+ * written and the timer stops.
+ * @author Sebastian Weiß
+ */
+public class TextAreaOutput extends BatchedOutput {
+	private static final int DEFAULT_FPS = 25;
+	private static final int DEFAULT_MAX_CHARS = 1 << 20;
+	private static final long MAX_UPDATE_TIME = 15000000; //ns
+
+	private final JTextArea textArea;
+	private final int maxChars;
+	private final Timer timer;
+	private long removedChars;
+
+	/**
+	 * Creates the output with 25 updates per second and at most one million
+	 * chars in the text area.
+	 * @param textArea the text area
+	 */
+	public TextAreaOutput(JTextArea textArea) {
+		this(textArea, DEFAULT_FPS, DEFAULT_MAX_CHARS);
+	}
+
+	/**
+	 * @param textArea the text area
+	 * @param fps the maximal count of updates per second
+	 * @param maxChars the maximal count of chars in the text area
+	 */
+	public TextAreaOutput(JTextArea textArea, int fps, int maxChars) {
+		if (fps < 1 || maxChars < 1) {
+			throw new IllegalArgumentException("Ungültige Bildrate oder Textlänge");
+		}
+		this.textArea = textArea;
+		this.maxChars = maxChars;
+		this.timer = new Timer(1000 / fps, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				update();
+			}
+		});
+		timer.setCoalesce(true);
+		timer.start();
+	}
+
+	/**
+	 * @return the count of chars that were removed from the text area or
+	 * never shown because of the limit
+	 */
+	public synchronized long getRemovedChars() {
+		return removedChars;
+	}
+
+	/**
+	 * Called by the timer in the event dispatch thread.
+	 */
+	private void update() {
+		//only the last maxChars are shown, older text is dropped while reading;
+		//stop after some time if the producer is faster than the text area
+		long end = System.nanoTime() + MAX_UPDATE_TIME;
+		StringBuilder chunk = new StringBuilder();
+		int dropped = 0;
+		do {
+			chunk.append(drain(maxChars));
+			if (chunk.length() >= 2 * maxChars) {
+				int cut = cutPosition(chunk, chunk.length() - maxChars);
+				chunk.delete(0, cut);
+				dropped += cut;
+			}
+		} while (!isEmpty() && System.nanoTime() < end);
+		if (chunk.length() > 0) {
+			if (dropped > 0 || chunk.length() >= maxChars) {
+				int cut = cutPosition(chunk, Math.max(0, chunk.length() - maxChars));
+				synchronized (this) {
+					removedChars += dropped + cut + textArea.getDocument().getLength();
+				}
+				textArea.setText(chunk.substring(cut));
+			} else {
+				textArea.append(chunk.toString());
+				trim();
+			}
+		}
+		if (isClosed() && isEmpty()) {
+			timer.stop();
+		}
+	}
+
+	/**
+	 * Removes the oldest lines until the text area holds at most maxChars.
+	 */
+	private void trim() {
+		Document doc = textArea.getDocument();
+		int excess = doc.getLength() - maxChars;
+		if (excess <= 0) {
+			return;
+		}
+		try {
+			String text = doc.getText(0, Math.min(doc.getLength(), excess + 1024));
+			int cut = cutPosition(text, excess);
+			doc.remove(0, cut);
+			synchronized (this) {
+				removedChars += cut;
+			}
+		} catch (BadLocationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @return the position behind the first line break at or after the
+	 * minimal position, so only whole lines are removed
+	 */
+	private static int cutPosition(CharSequence text, int min) {
+		for (int i=min; i<text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				return i + 1;
+			}
+		}
+		return min;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives the structured {@link TraceEvent}s of the solvers. <br>
+ * Every event type has a {@link Level}, a trace only receives the events up
+ * to its level. The solvers test {@link #isEnabled(org.shaman.ds.Trace.Level) }
+ * before they create an event, so a missing or lower trace costs no
+ * allocation and no formatting. The events are rendered to text only when
+ * {@link TraceEvent#render() } is called, which {@link #ringBuffer(int, org.shaman.ds.Trace.Level) }
+ * can defer to a background thread.
+ * @author Sebastian Weiß
+ */
+public abstract class Trace {
+
+	/**
+	 * The levels of detail, each one includes the levels before it.
+	 */
+	public static enum Level {
+		OFF,
+		/**
+		 * models and restarts
+		 */
+		INFO,
+		/**
+		 * decisions, conflicts, backtracks, learned clauses, resolvents and
+		 * the intermediate formulars of the recursive DPLL
+		 */
+		FINE,
+		/**
+		 * every propagated literal
+		 */
+		FINEST
+	}
+
+	/**
+	 * The types of events.
+	 */
+	public static enum Type {
+		DECISION(Level.FINE),
+		PROPAGATION(Level.FINEST),
+		CONFLICT(Level.FINE),
+		BACKTRACK(Level.FINE),
+		LEARNED(Level.FINE),
+		RESTART(Level.INFO),
+		MODEL(Level.INFO),
+		RESOLVENT(Level.FINE),
+		SUBSTITUTION(Level.FINE);
+
+		private final Level level;
+
+		private Type(Level level) {
+			this.level = level;
+		}
+
+		public Level getLevel() {
+			return level;
+		}
+	}
+
+	private final Level level;
+
+	protected Trace(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * @return the highest level this trace receives
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * @param level the level of an event
+	 * @return {@code true} if events of this level are received
+	 */
+	public final boolean isEnabled(Level level) {
+		return level != Level.OFF && level.compareTo(this.level) <= 0;
+	}
+
+	/**
+	 * Receives an event, it is only called if the level of the event is enabled.
+	 * @param event the event
+	 */
+	public abstract void event(TraceEvent event);
+
+	/**
+	 * Renders every event immediately into the output.
+	 * @param out the output
+	 * @param level the highest level
+	 * @return a new trace
+	 */
+	public static Trace output(final Output out, Level level) {
+		return new Trace(level) {
+			@Override
+			public void event(TraceEvent event) {
+				out.println(event.render());
+			}
+		};
+	}
+
+	/**
+	 * Keeps the last events in a ring buffer without rendering them.
+	 * @param capacity the count of kept events, older events are dropped
+	 * @param level the highest level
+	 * @return a new trace
+	 */
+	public static RingBuffer ringBuffer(int capacity, Level level) {
+		return new RingBuffer(capacity, level);
+	}
+
+	/**
+	 * Keeps the last events, older events are dropped when it is full.
+	 * The events can be taken out with {@link #drain() } or rendered by
+	 * a background thread started with {@link #startRenderer(org.shaman.ds.Output) }.
+	 */
+	public static class RingBuffer extends Trace {
+		private final TraceEvent[] events;
+		private int head;
+		private int size;
+		private long dropped;
+
+		private RingBuffer(int capacity, Level level) {
+			super(level);
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Die Kapazität muss positiv sein");
+			}
+			events = new TraceEvent[capacity];
+		}
+
+		@Override
+		public synchronized void event(TraceEvent event) {
+			if (size == events.length) {
+				events[head] = event;
+				head = (head + 1) % events.length;
+				dropped++;
+			} else {
+				events[(head + size) % events.length] = event;
+				size++;
+			}
+			notifyAll();
+		}
+
+		/**
+		 * Removes all kept events.
+		 * @return the events, oldest first
+		 */
+		public synchronized List<TraceEvent> drain() {
+			List<TraceEvent> list = new ArrayList<>(size);
+			for (int i=0; i<size; i++) {
+				int index = (head + i) % events.length;
+				list.add(events[index]);
+				events[index] = null;
+			}
+			head = 0;
+			size = 0;
+			return list;
+		}
+
+		/**
+		 * @return the count of events that were dropped because the buffer
+		 * was full
+		 */
+		public synchronized long getDropped() {
+			return dropped;
+		}
+
+		/**
+		 * Starts a daemon thread that waits for events and renders them into
+		 * the output. It stops when it is interrupted, after rendering the
+		 * remaining events.
+		 * @param out the output
+		 * @return the started thread
+		 */
+		public Thread startRenderer(final Output out) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					boolean running = true;
+					while (running) {
+						synchronized (RingBuffer.this) {
+							try {
+								while (size == 0) {
+									RingBuffer.this.wait();
+								}
+							} catch (InterruptedException ex) {
+								running = false;
+							}
+						}
+						for (TraceEvent e : drain()) {
+							out.println(e.render());
+						}
+					}
+				}
+			}, "Trace-Renderer");
+			thread.setDaemon(true);
+			thread.start();
+			return thread;
+		}
+	}
+}
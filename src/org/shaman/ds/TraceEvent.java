@@ -0,0 +1,99 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+
+/**
+ * One event of a solver for a {@link Trace}. It only holds references, the
+ * text is built by {@link #render() }. The referenced objects are not
+ * changed by the solvers after the event, so it can be rendered later.
+ * @author Sebastian Weiß
+ */
+public final class TraceEvent {
+	private final Trace.Type type;
+	private final int depth;
+	private final KNF.Literal literal;
+	private final int clause;
+	private final int otherClause;
+	private final Object detail;
+	private final long time;
+
+	/**
+	 * @param type the type
+	 * @param depth the decision level or recursion depth
+	 * @param literal the literal or {@code null}
+	 * @param clause the index of the clause or -1
+	 * @param otherClause the index of a second clause (the other parent of a
+	 * resolvent) or -1
+	 * @param detail further information that is rendered with
+	 * {@code toString()} or {@code null}
+	 */
+	public TraceEvent(Trace.Type type, int depth, KNF.Literal literal, int clause, int otherClause, Object detail) {
+		this.type = type;
+		this.depth = depth;
+		this.literal = literal;
+		this.clause = clause;
+		this.otherClause = otherClause;
+		this.detail = detail;
+		this.time = System.nanoTime();
+	}
+
+	public Trace.Type getType() {
+		return type;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public KNF.Literal getLiteral() {
+		return literal;
+	}
+
+	public int getClause() {
+		return clause;
+	}
+
+	public int getOtherClause() {
+		return otherClause;
+	}
+
+	public Object getDetail() {
+		return detail;
+	}
+
+	/**
+	 * @return the time of the event from {@link System#nanoTime() }
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the event as text, like the debug output of the solvers
+	 */
+	public String render() {
+		switch (type) {
+			case DECISION: return "Entscheidung auf Ebene "+depth+": "+literal;
+			case PROPAGATION: return "Propagiert auf Ebene "+depth+": "+literal+" (Klausel "+clause+")";
+			case CONFLICT: return "Konflikt auf Ebene "+depth+" in Klausel "+clause;
+			case BACKTRACK: return "Zurück auf Ebene "+depth;
+			case LEARNED: return "Gelernte Klausel "+clause+" setzt "+literal+" auf Ebene "+depth;
+			case RESTART: return "Neustart";
+			case MODEL: return "Erfüllende Belegung gefunden: "+(detail instanceof Object[] ? Arrays.toString((Object[]) detail) : detail);
+			case RESOLVENT: return detail+"";
+			case SUBSTITUTION: return detail+"";
+			default: return type+" "+depth+" "+literal+" "+clause+" "+otherClause+" "+detail;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return render();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interning table for variable names.
+ * Every variable name is mapped to an index, starting at 1. A literal is then
+ * encoded as {@code index} or {@code -index} (negated), like in the DIMACS
+ * format. The {@link KNF.Literal} objects of each variable are created only once.
+ * @author Sebastian Weiß
+ */
+public class VariableTable {
+	private final Map<String, Integer> indices;
+	private String[] names;
+	private KNF.Literal[] positive;
+	private KNF.Literal[] negative;
+	private int count;
+
+	/**
+	 * Constructs an empty table.
+	 */
+	public VariableTable() {
+		indices = new HashMap<>();
+		names = new String[16];
+		positive = new KNF.Literal[16];
+		negative = new KNF.Literal[16];
+		count = 0;
+	}
+
+	/**
+	 * Returns the index of the variable, it is added if it is not known yet.
+	 * @param name the variable name
+	 * @return the index of the variable, at least 1
+	 */
+	public int intern(String name) {
+		Integer index = indices.get(name);
+		if (index != null) {
+			return index;
+		}
+		count++;
+		if (count >= names.length) {
+			int size = names.length * 2;
+			names = Arrays.copyOf(names, size);
+			positive = Arrays.copyOf(positive, size);
+			negative = Arrays.copyOf(negative, size);
+		}
+		names[count] = name;
+		indices.put(name, count);
+		return count;
+	}
+
+	/**
+	 * @param name the variable name
+	 * @return the index of the variable or 0 if it is unknown
+	 */
+	public int lookup(String name) {
+		Integer index = indices.get(name);
+		return index==null ? 0 : index;
+	}
+
+	/**
+	 * @param variable the index of the variable
+	 * @return the name of the variable
+	 */
+	public String getName(int variable) {
+		return names[variable];
+	}
+
+	/**
+	 * @return the count of variables, this is also the highest index
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Encodes the literal, the variable is added if it is not known yet.
+	 * @param literal the literal
+	 * @return the signed literal code
+	 */
+	public int encode(KNF.Literal literal) {
+		int v = intern(literal.getVariable());
+		return literal.isNegated() ? -v : v;
+	}
+
+	/**
+	 * Encodes the literal without adding its variable.
+	 * @param literal the literal
+	 * @return the signed literal code or 0 if the variable is unknown
+	 */
+	public int lookup(KNF.Literal literal) {
+		int v = lookup(literal.getVariable());
+		return literal.isNegated() ? -v : v;
+	}
+
+	/**
+	 * Decodes the literal. The returned objects are shared.
+	 * @param code the signed literal code
+	 * @return the literal
+	 */
+	public KNF.Literal decode(int code) {
+		if (code > 0) {
+			KNF.Literal l = positive[code];
+			if (l == null) {
+				l = new KNF.Literal(names[code], false);
+				positive[code] = l;
+			}
+			return l;
+		} else {
+			KNF.Literal l = negative[-code];
+			if (l == null) {
+				l = new KNF.Literal(names[-code], true);
+				negative[-code] = l;
+			}
+			return l;
+		}
+	}
+}
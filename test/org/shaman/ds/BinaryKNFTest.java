@@ -0,0 +1,148 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the binary file format of formulars.
+ * @author Sebastian Weiß
+ */
+public class BinaryKNFTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(10);
+		for (int i=0; i<100; i++) {
+			int variables = 1 + random.nextInt(200);
+			KNF knf = RandomFormulars.knf(variables, RandomFormulars.clauses(random, variables, variables * 3, 6));
+			knf.getVariables().intern("ünbenutzt_" + i);
+			File file = file(write(knf));
+			KNF read = BinaryKNF.read(file);
+			assertEquals(knf.toString(), read.toString());
+			assertEquals(knf.getVariables().size(), read.getVariables().size());
+			for (int v=1; v<=knf.getVariables().size(); v++) {
+				assertEquals(knf.getVariables().getName(v), read.getVariables().getName(v));
+			}
+			//the read database knows its clauses
+			ClauseDatabase db = read.getDatabase();
+			int c = random.nextInt(db.size());
+			int[] clause = new int[db.length(c)];
+			for (int j=0; j<clause.length; j++) {
+				clause[clause.length - 1 - j] = db.literal(c, j);
+			}
+			assertFalse(db.add(clause));
+		}
+	}
+
+	@Test
+	public void testChecksum() throws IOException {
+		KNF knf = new KNF("{{a, -b}, {b, c}, {-a, -c}}");
+		byte[] bytes = write(knf);
+		for (int i=0; i<bytes.length; i++) {
+			byte[] flipped = bytes.clone();
+			flipped[i] ^= 0x10;
+			try {
+				BinaryKNF.read(file(flipped));
+				fail("byte "+i);
+			} catch (IllegalArgumentException ex) {
+				//expected
+			}
+		}
+		bytes[bytes.length / 2] ^= 1;
+		try {
+			BinaryKNF.read(file(bytes));
+			fail();
+		} catch (IllegalArgumentException ex) {
+			assertEquals("Prüfsumme der KNF-Binärdatei stimmt nicht", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testDuplicateLiteral() throws IOException {
+		byte[] bytes = encode(new String[] {"a", "b"}, new int[][] {{1, -2}, {2, 1, 2}});
+		try {
+			BinaryKNF.read(file(bytes));
+			fail();
+		} catch (IllegalArgumentException ex) {
+			assertEquals("Doppeltes Literal in Klausel 2 der KNF-Binärdatei", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testDuplicateClause() throws IOException {
+		byte[] bytes = encode(new String[] {"a", "b", "c"}, new int[][] {{1, -2}, {3}, {-2, 1}});
+		try {
+			BinaryKNF.read(file(bytes));
+			fail();
+		} catch (IllegalArgumentException ex) {
+			assertEquals("Doppelte Klausel 3 in der KNF-Binärdatei", ex.getMessage());
+		}
+		//the same literals in another clause are fine
+		bytes = encode(new String[] {"a", "b", "c"}, new int[][] {{1, -2}, {1, -2, 3}, {-2}});
+		assertEquals("{{a, -b}, {a, -b, c}, {-b}}", BinaryKNF.read(file(bytes)).toString());
+	}
+
+	private static byte[] write(KNF knf) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryKNF.write(knf, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes the clauses as they are, with a correct checksum.
+	 */
+	private static byte[] encode(String[] names, int[][] clauses) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int literals = 0;
+		for (int[] c : clauses) {
+			literals += c.length;
+		}
+		out.writeInt(('K' << 24) | ('N' << 16) | ('F' << 8) | 'B');
+		out.writeInt(1);
+		out.writeInt(names.length);
+		out.writeInt(clauses.length);
+		out.writeInt(literals);
+		for (String name : names) {
+			byte[] b = name.getBytes(StandardCharsets.UTF_8);
+			out.write(b.length); //short names fit into one varint byte
+			out.write(b);
+		}
+		for (int[] c : clauses) {
+			out.write(c.length);
+		}
+		for (int[] c : clauses) {
+			for (int l : c) {
+				out.write((l << 1) ^ (l >> 31));
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt((int) crc.getValue());
+		return bytes.toByteArray();
+	}
+
+	private static File file(byte[] bytes) throws IOException {
+		File file = File.createTempFile("knf", ".knfb");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		return file;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the DIMACS reader and writer.
+ * @author Sebastian Weiß
+ */
+public class DimacsTest {
+	private static final int[] THREADS = {1, 2, 3, 8};
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(8);
+		for (int i=0; i<100; i++) {
+			int variables = 1 + random.nextInt(30);
+			KNF knf = RandomFormulars.knf(variables, RandomFormulars.clauses(random, variables, variables * 3, 4));
+			KNF read = read(write(knf));
+			assertEquals(knf.toString(), read.toString());
+			//declared variables after the last used one are not created
+			for (int v=1; v<=read.getVariables().size(); v++) {
+				assertEquals(knf.getVariables().getName(v), read.getVariables().getName(v));
+			}
+		}
+	}
+
+	@Test
+	public void testNamedRoundTrip() throws IOException {
+		KNF knf = new KNF("{{a, -b_1}, {_c, b_1}, {-a}}");
+		knf.getVariables().intern("unused");
+		KNF read = read(write(knf));
+		assertEquals(knf.toString(), read.toString());
+		assertEquals(4, read.getVariables().size());
+		for (int v=1; v<=4; v++) {
+			assertEquals(knf.getVariables().getName(v), read.getVariables().getName(v));
+		}
+	}
+
+	@Test
+	public void testHeader() throws IOException {
+		assertEquals(1, read("p cnf 2 1\n1 -2 0\n").getCount());
+		assertEquals(2, read("p  cnf\t2 2\n1 0\n-2 0\n").getCount());
+		assertError("Zeile 1: Kopfzeile muss 'p cnf Variablen Klauseln' sein", "p cnfx 2 1\n1 0\n");
+		assertError("Zeile 1: Kopfzeile muss 'p cnf Variablen Klauseln' sein", "p dnf 2 1\n1 0\n");
+		assertError("Zeile 2: Die Variable 5 ist größer als die 2 Variablen der Kopfzeile", "p cnf 2 1\n1 -5 0\n");
+		assertError("Zeile 1: Die Kopfzeile gibt 1 Klauseln an, gelesen wurden 2", "p cnf 2 1\n1 0\n2 0\n");
+		assertError("Zeile 2: Die Kopfzeile gibt 3 Klauseln an, gelesen wurden 2", "c Kommentar\np cnf 2 3\n1 0\n2 0\n");
+		assertError("Zeile 2: Doppelte oder verspätete Kopfzeile", "1 0\np cnf 1 1\n");
+	}
+
+	@Test
+	public void testLargeHeader() throws IOException {
+		//the declared variables are not created in advance
+		KNF knf = read("p cnf 2000000000 1\n1 -3 0\n");
+		assertEquals(3, knf.getVariables().size());
+		assertEquals("x3", knf.getVariables().getName(3));
+	}
+
+	@Test
+	public void testNames() throws IOException {
+		KNF knf = read("c v 1 a\nc v 2 b\np cnf 3 1\n-1 2 3 0\n");
+		assertEquals("{{-a, b, x3}}", knf.toString());
+		assertError("Zeile 3: Der Name x2 ist bereits an eine andere Variable vergeben", "c v 1 x2\np cnf 2 1\n1 2 0\n");
+	}
+
+	@Test
+	public void testReadMapped() throws IOException {
+		Random random = new Random(9);
+		int variables = 300;
+		KNF knf = RandomFormulars.knf(variables, RandomFormulars.clauses(random, variables, 20000, 5));
+		File file = file(write(knf));
+		KNF read = Dimacs.read(file);
+		assertEquals(knf.toString(), read.toString());
+		for (int threads : THREADS) {
+			KNF mapped = Dimacs.readMapped(file, threads);
+			assertEquals("threads "+threads, read.toString(), mapped.toString());
+			assertEquals("threads "+threads, read.getVariables().size(), mapped.getVariables().size());
+		}
+	}
+
+	@Test
+	public void testReadMappedErrors() throws IOException {
+		StringBuilder clauses = new StringBuilder();
+		for (int i=0; i<5000; i++) {
+			clauses.append(i % 10 + 1).append(' ').append(-(i % 7 + 1)).append(" 0\n");
+		}
+		String[] inputs = {
+			"p cnf 10 5001\n" + clauses + "1 -11 0\n",
+			"p cnf 10 5001\n" + clauses,
+			"p cnf 10 5000\n" + clauses + "p cnf 10 5000\n",
+			"p cnf 10 5000\n" + clauses + "1 x 0\n",
+		};
+		for (String input : inputs) {
+			File file = file(input.getBytes(StandardCharsets.US_ASCII));
+			String expected = null;
+			try {
+				Dimacs.read(file);
+				fail("no error");
+			} catch (IllegalArgumentException ex) {
+				expected = ex.getMessage();
+			}
+			for (int threads : THREADS) {
+				try {
+					Dimacs.readMapped(file, threads);
+					fail("no error: "+expected);
+				} catch (IllegalArgumentException ex) {
+					assertEquals("threads "+threads, expected, ex.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void assertError(String message, String input) throws IOException {
+		try {
+			read(input);
+			fail("no error: "+message);
+		} catch (IllegalArgumentException ex) {
+			assertEquals(message, ex.getMessage());
+		}
+	}
+
+	private static byte[] write(KNF knf) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Dimacs.write(knf, out);
+		return out.toByteArray();
+	}
+
+	private static KNF read(byte[] bytes) throws IOException {
+		return Dimacs.read(new ByteArrayInputStream(bytes));
+	}
+
+	private static KNF read(String input) throws IOException {
+		return read(input.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static File file(byte[] bytes) throws IOException {
+		File file = File.createTempFile("dimacs", ".cnf");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		return file;
+	}
+}
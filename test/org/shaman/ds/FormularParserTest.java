@@ -0,0 +1,147 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link FormularParser}.
+ * @author Sebastian Weiß
+ */
+public class FormularParserTest {
+
+	@Test
+	public void testNames() throws IOException {
+		KNF knf = FormularParser.parse("{ {x123, -_a, b_2} ; {-Äpfel9,x123},{} }");
+		assertEquals("{{x123, -_a, b_2}, {-Äpfel9, x123}, {}}", knf.toString());
+		VariableTable variables = knf.getVariables();
+		assertEquals(4, variables.size());
+		assertEquals("x123", variables.getName(1));
+		assertEquals("_a", variables.getName(2));
+		assertEquals("b_2", variables.getName(3));
+		assertEquals("Äpfel9", variables.getName(4));
+		assertEquals(knf.toString(), FormularParser.parse(new StringReader("{{x123,-_a,b_2};{-Äpfel9,x123},{}}")).toString());
+	}
+
+	@Test
+	public void testSyntaxErrors() {
+		assertError(1, 1, "Eine Formel muss mit einer öffnenden geschweiften Klammer { beginnen", "a");
+		assertError(2, 5, "Die Trennzeichen , und ; dürfen nicht direkt hintereinander stehen", "{{a, b},\n {c,, d}}");
+		assertError(1, 8, "Unerlaubtes Zeichen: 1", "{{a}, {1}}");
+		assertError(1, 8, "Formel wurde geschlossen, obwohl noch Zeichen übrig sind", "{{a}}  x");
+		assertError(1, 5, "Ende der Formel ohne eine schließende Klammer erreicht", "{{a}");
+		assertError(3, 6, "Variablenname erwartet, stattdessen war es }", "\n\n  {{-}}");
+		assertError(1, 8, "Zwei Literale müssen mit , oder ; getrennt werden", "{{a, b c}}");
+		assertError(1, 6, "Zwei Klauseln müssen mit , oder ; getrennt werden", "{{a} {b}}");
+	}
+
+	@Test
+	public void testLongInput() throws IOException {
+		//names of all lengths cross the 8 KiB blocks of the parser at every position
+		Random random = new Random(11);
+		List<String> names = new ArrayList<>();
+		StringBuilder formular = new StringBuilder("{");
+		int line = 1;
+		int clauses = 1;
+		while (formular.length() < 100000) {
+			if (formular.length() > 1) {
+				formular.append(",\n");
+				line++;
+			}
+			formular.append('{');
+			int length = 1 + random.nextInt(4);
+			for (int i=0; i<length; i++) {
+				StringBuilder name = new StringBuilder(random.nextBoolean() ? "_" : "v");
+				int chars = random.nextInt(20);
+				for (int j=0; j<chars; j++) {
+					name.append((char) ('a' + random.nextInt(26)));
+				}
+				name.append(names.size());
+				names.add(name.toString());
+				formular.append(i == 0 ? "" : ", ").append(random.nextBoolean() ? "-" : "").append(name);
+			}
+			formular.append('}');
+			clauses++;
+		}
+		//one name longer than a block
+		StringBuilder longName = new StringBuilder("x");
+		for (int i=0; i<20000; i++) {
+			longName.append((char) ('0' + i % 10));
+		}
+		names.add(longName.toString());
+		formular.append(", {").append(longName).append("}}");
+
+		KNF expected = FormularParser.parse(formular);
+		assertEquals(names.size(), expected.getVariables().size());
+		for (int v=1; v<=names.size(); v++) {
+			assertEquals(names.get(v - 1), expected.getVariables().getName(v));
+		}
+		assertEquals(clauses, expected.getCount());
+		assertEquals(expected.toString(), FormularParser.parse(formular.toString()).toString());
+		assertEquals(expected.toString(), FormularParser.parse(new StringReader(formular.toString())).toString());
+		assertEquals(expected.toString(), FormularParser.parse(new ChunkReader(formular.toString(), 7)).toString());
+
+		//the position of an error after many blocks
+		String invalid = formular.substring(0, formular.length() - 2) + "!}}";
+		int column = invalid.length() - 3 - invalid.lastIndexOf('\n');
+		assertError(line, column, "Unerlaubtes Zeichen: !", invalid);
+		try {
+			FormularParser.parse(new ChunkReader(invalid, 13));
+			fail();
+		} catch (FormularParser.SyntaxException ex) {
+			assertEquals(line, ex.getLine());
+			assertEquals(column, ex.getColumn());
+		}
+	}
+
+	private static void assertError(int line, int column, String message, String formular) {
+		try {
+			FormularParser.parse(formular);
+			fail("no error: "+message);
+		} catch (FormularParser.SyntaxException ex) {
+			assertEquals("Zeile "+line+", Spalte "+column+": "+message, ex.getMessage());
+			assertEquals(line, ex.getLine());
+			assertEquals(column, ex.getColumn());
+		}
+	}
+
+	/**
+	 * Returns at most a few chars per call, like a slow stream.
+	 */
+	private static class ChunkReader extends Reader {
+		private final String text;
+		private final int chunk;
+		private int position;
+
+		private ChunkReader(String text, int chunk) {
+			this.text = text;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			if (position == text.length()) {
+				return -1;
+			}
+			int n = Math.min(Math.min(length, chunk), text.length() - position);
+			text.getChars(position, position + n, buffer, offset);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the {@link ModelCounter} with a brute force count on small random
+ * formulars.
+ * @author Sebastian Weiß
+ */
+public class ModelCounterTest {
+	private static final int FORMULARS = 500;
+
+	@Test
+	public void testCount() {
+		Random random = new Random(5);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 1 + random.nextInt(12);
+			int[][] clauses = RandomFormulars.clauses(random, variables,
+					random.nextInt(variables * 4 + 1), 1 + random.nextInt(4));
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			assertEquals("formular "+i+": "+knf, BigInteger.valueOf(RandomFormulars.count(variables, clauses)),
+					new ModelCounter().count(knf));
+		}
+	}
+
+	@Test
+	public void testSmallCache() {
+		Random random = new Random(6);
+		ModelCounter counter = new ModelCounter(2);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 1 + random.nextInt(12);
+			int[][] clauses = RandomFormulars.clauses(random, variables, variables * 2, 3);
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			assertEquals("formular "+i+": "+knf, BigInteger.valueOf(RandomFormulars.count(variables, clauses)),
+					counter.count(knf));
+		}
+	}
+
+	@Test
+	public void testLongChain() {
+		int variables = 20000;
+		//allocations by the count of false variables at the end
+		BigInteger[] counts = {BigInteger.ONE, BigInteger.ZERO, BigInteger.ZERO};
+		for (int v=0; v<variables; v++) {
+			counts = new BigInteger[] {counts[0].add(counts[1]).add(counts[2]), counts[0], counts[1]};
+		}
+		BigInteger expected = counts[0].add(counts[1]).add(counts[2]);
+		assertEquals(expected, new ModelCounter().count(chain(variables)));
+	}
+
+	@Test
+	public void testCancelled() {
+		ModelCounter counter = new ModelCounter();
+		CancellationToken cancellation = CancellationToken.create();
+		cancellation.cancel();
+		counter.setCancellationToken(cancellation);
+		assertNull(counter.count(chain(30)));
+	}
+
+	/**
+	 * The clauses {x_i, x_i+1, x_i+2}, no three following variables are false.
+	 */
+	private static KNF chain(int variables) {
+		int[][] clauses = new int[variables - 2][];
+		for (int i=0; i<clauses.length; i++) {
+			clauses[i] = new int[] {i + 1, i + 2, i + 3};
+		}
+		return RandomFormulars.knf(variables, clauses);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Preprocesses small random formulars, solves the result, extends the model
+ * and checks it against the original formular and a brute force search.
+ * @author Sebastian Weiß
+ */
+public class PreprocessorTest {
+	private static final int FORMULARS = 400;
+
+	@Test
+	public void testPureLiterals() {
+		test(Preprocessor.Pass.PURE_LITERALS);
+	}
+
+	@Test
+	public void testSubsumption() {
+		test(Preprocessor.Pass.SUBSUMPTION);
+	}
+
+	@Test
+	public void testEquivalentLiterals() {
+		test(Preprocessor.Pass.EQUIVALENT_LITERALS);
+	}
+
+	@Test
+	public void testFailedLiterals() {
+		test(Preprocessor.Pass.FAILED_LITERALS);
+	}
+
+	@Test
+	public void testVariableElimination() {
+		test(Preprocessor.Pass.VARIABLE_ELIMINATION);
+	}
+
+	@Test
+	public void testAllPasses() {
+		test(Preprocessor.Pass.values());
+	}
+
+	private void test(Preprocessor.Pass... passes) {
+		Preprocessor preprocessor = new Preprocessor();
+		for (Preprocessor.Pass pass : Preprocessor.Pass.values()) {
+			preprocessor.setEnabled(pass, false);
+		}
+		for (Preprocessor.Pass pass : passes) {
+			preprocessor.setEnabled(pass, true);
+		}
+		Random random = new Random(passes.length == 1 ? passes[0].ordinal() : -1);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 3 + random.nextInt(8);
+			//short clauses give the equivalence and failed literal passes work
+			int[][] clauses = RandomFormulars.clauses(random, variables,
+					variables * (2 + random.nextInt(3)), 2 + random.nextInt(2));
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			String message = "formular "+i+": "+knf;
+			boolean expected = RandomFormulars.count(variables, clauses) > 0;
+
+			KNF simplified = preprocessor.preprocess(knf);
+			if (preprocessor.isUnsatisfiable()) {
+				assertFalse(message, expected);
+				continue;
+			}
+			SearchEngine engine = new SearchEngine(simplified, Heuristic.vsids());
+			assertEquals(message, expected, engine.solve());
+			if (expected) {
+				Set<KNF.Literal> model = preprocessor.extend(engine.getModel());
+				assertEquals(message, variables, model.size());
+				assertTrue(message+" -> "+model, RandomFormulars.fullfills(knf, model));
+			}
+		}
+	}
+}
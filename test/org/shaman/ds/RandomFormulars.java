@@ -0,0 +1,138 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Small random formulars and a brute force solver to check the solvers
+ * against. The variables are named x1 ... xn and interned in this order, so
+ * the literal i is the variable xi.
+ * @author Sebastian Weiß
+ */
+class RandomFormulars {
+
+	private RandomFormulars() {
+	}
+
+	/**
+	 * @param random the random generator
+	 * @param variables the count of variables
+	 * @param count the count of clauses
+	 * @param maxLength the maximal length of a clause, the length is chosen
+	 * between 1 and this
+	 * @return the clauses as int literals
+	 */
+	static int[][] clauses(Random random, int variables, int count, int maxLength) {
+		int[][] clauses = new int[count][];
+		for (int c=0; c<count; c++) {
+			clauses[c] = new int[1 + random.nextInt(maxLength)];
+			for (int i=0; i<clauses[c].length; i++) {
+				int v = 1 + random.nextInt(variables);
+				clauses[c][i] = random.nextBoolean() ? v : -v;
+			}
+		}
+		return clauses;
+	}
+
+	/**
+	 * @param variables the count of variables, all of them are interned
+	 * @param clauses the clauses as int literals
+	 * @return the formular
+	 */
+	static KNF knf(int variables, int[][] clauses) {
+		KNF knf = new KNF();
+		for (int v=1; v<=variables; v++) {
+			knf.getVariables().intern(name(v));
+		}
+		for (int[] c : clauses) {
+			KNF.Clause clause = new KNF.Clause();
+			for (int l : c) {
+				clause.addLiteral(literal(l));
+			}
+			knf.addClause(clause);
+		}
+		return knf;
+	}
+
+	static String name(int variable) {
+		return "x" + variable;
+	}
+
+	static KNF.Literal literal(int l) {
+		return new KNF.Literal(name(Math.abs(l)), l < 0);
+	}
+
+	/**
+	 * @param variables the count of variables
+	 * @param clauses the clauses
+	 * @param assumptions literals that have to be true
+	 * @return the count of allocations of all variables that fullfill the
+	 * clauses and the assumptions
+	 */
+	static long count(int variables, int[][] clauses, int... assumptions) {
+		long count = 0;
+		for (int mask=0; mask<(1 << variables); mask++) {
+			if (isTrue(mask, assumptions) && isTrue(mask, clauses)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isTrue(int mask, int[][] clauses) {
+		for (int[] c : clauses) {
+			boolean satisfied = false;
+			for (int l : c) {
+				satisfied |= isTrue(mask, l);
+			}
+			if (!satisfied) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTrue(int mask, int[] literals) {
+		for (int l : literals) {
+			if (!isTrue(mask, l)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTrue(int mask, int l) {
+		boolean value = (mask & (1 << (Math.abs(l) - 1))) != 0;
+		return l > 0 ? value : !value;
+	}
+
+	/**
+	 * @param knf the formular
+	 * @param allocation a possibly partial allocation
+	 * @return {@code true} if every clause contains a literal of the allocation
+	 * and the allocation does not contain a variable twice
+	 */
+	static boolean fullfills(KNF knf, Set<KNF.Literal> allocation) {
+		for (KNF.Literal l : allocation) {
+			if (allocation.contains(new KNF.Literal(l.getVariable(), !l.isNegated()))) {
+				return false;
+			}
+		}
+		for (KNF.Clause c : knf) {
+			boolean satisfied = false;
+			for (KNF.Literal l : c) {
+				satisfied |= allocation.contains(l);
+			}
+			if (!satisfied) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package org.shaman.ds;
+
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the {@link SearchEngine} with a brute force search on small random
+ * formulars.
+ * @author Sebastian Weiß
+ */
+public class SearchEngineTest {
+	private static final String[] HEURISTICS = {"FirstClause", "VSIDS", "MOMS", "JeroslowWang", "DLIS"};
+	private static final String[] RESTART_POLICIES = {"None", "Luby", "Geometric", "Glucose"};
+	private static final int FORMULARS = 300;
+
+	@Test
+	public void testSolve() {
+		Random random = new Random(1);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 3 + random.nextInt(8);
+			int[][] clauses = RandomFormulars.clauses(random, variables, variables * 4, 3);
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			boolean expected = RandomFormulars.count(variables, clauses) > 0;
+			for (String heuristic : HEURISTICS) {
+				for (String restartPolicy : RESTART_POLICIES) {
+					SearchEngine engine = new SearchEngine(knf, Heuristic.forName(heuristic));
+					engine.setRestartPolicy(RestartPolicy.forName(restartPolicy));
+					engine.setPhaseSaving(i % 2 == 0);
+					String message = "formular "+i+", "+heuristic+", "+restartPolicy+": "+knf;
+					assertEquals(message, expected, engine.solve());
+					if (expected) {
+						assertTrue(message, RandomFormulars.fullfills(knf, engine.getModel()));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNextModel() {
+		Random random = new Random(2);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 3 + random.nextInt(8);
+			int[][] clauses = RandomFormulars.clauses(random, variables, variables * 3, 3);
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			SearchEngine engine = new SearchEngine(knf, Heuristic.forName(HEURISTICS[i % HEURISTICS.length]));
+			//the partial allocations are disjoint and together cover all full ones
+			long covered = 0;
+			while (engine.nextModel()) {
+				Set<KNF.Literal> model = engine.getModel();
+				assertTrue("formular "+i+": "+knf, RandomFormulars.fullfills(knf, model));
+				covered += 1L << (variables - model.size());
+			}
+			assertEquals("formular "+i+": "+knf, RandomFormulars.count(variables, clauses), covered);
+			assertFalse(engine.nextModel());
+		}
+	}
+
+	@Test
+	public void testAssumptions() {
+		Random random = new Random(3);
+		for (int i=0; i<FORMULARS; i++) {
+			int variables = 4 + random.nextInt(7);
+			int[][] clauses = RandomFormulars.clauses(random, variables, variables * 3, 3);
+			KNF knf = RandomFormulars.knf(variables, clauses);
+			//the same engine answers all queries, so the learned clauses are reused
+			SearchEngine engine = new SearchEngine(knf, Heuristic.vsids());
+			for (int query=0; query<10; query++) {
+				int[] assumptions = RandomFormulars.clauses(random, variables, 1, 4)[0];
+				String message = "formular "+i+", query "+query+": "+knf;
+				boolean expected = RandomFormulars.count(variables, clauses, assumptions) > 0;
+				assertEquals(message, expected, engine.solve(assumptions));
+				if (expected) {
+					Set<KNF.Literal> model = engine.getModel();
+					assertTrue(message, RandomFormulars.fullfills(knf, model));
+					for (int l : assumptions) {
+						assertTrue(message, model.contains(RandomFormulars.literal(l)));
+					}
+					assertEquals(message, 0, engine.getFailedAssumptions().length);
+				} else {
+					//the core is a subset of the assumptions that is unfullfillable
+					int[] core = engine.getFailedAssumptions();
+					for (int l : core) {
+						assertTrue(message, contains(assumptions, l));
+					}
+					assertEquals(message, 0, RandomFormulars.count(variables, clauses, core));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalSolver() {
+		Random random = new Random(4);
+		for (int i=0; i<FORMULARS / 3; i++) {
+			int variables = 4 + random.nextInt(7);
+			int[][] clauses = new int[0][];
+			IncrementalSolver solver = new IncrementalSolver(RandomFormulars.knf(variables, clauses));
+			//add clauses until the formular becomes unfullfillable
+			for (int step=0; step<variables * 6; step++) {
+				int[] clause = RandomFormulars.clauses(random, variables, 1, 3)[0];
+				clauses = java.util.Arrays.copyOf(clauses, clauses.length + 1);
+				clauses[clauses.length - 1] = clause;
+				KNF.Literal[] literals = new KNF.Literal[clause.length];
+				for (int j=0; j<clause.length; j++) {
+					literals[j] = RandomFormulars.literal(clause[j]);
+				}
+				solver.addClause(literals);
+				boolean expected = RandomFormulars.count(variables, clauses) > 0;
+				String message = "formular "+i+", step "+step+": "+solver.getFormular();
+				assertEquals(message, expected, solver.solve());
+				if (expected) {
+					assertTrue(message, RandomFormulars.fullfills(solver.getFormular(), solver.getModel()));
+				} else {
+					assertTrue(message, solver.isUnsatisfiable());
+					break;
+				}
+			}
+		}
+	}
+
+	private static boolean contains(int[] literals, int l) {
+		for (int x : literals) {
+			if (x == l) {
+				return true;
+			}
+		}
+		return false;
+	}
+}